@@ -0,0 +1,48 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+
+import java.util.Random;
+
+/**
+ * Shared setup for the JMH benchmarks: boots the vanilla registries and
+ * builds our lookup tables from the default config, without Fabric Loader.
+ * Mixins aren't applied here, so benchmarks work on PlayerKnowledgeData directly.
+ */
+final class BenchmarkSupport {
+
+    private static boolean bootstrapped;
+
+    private BenchmarkSupport() {
+    }
+
+    static synchronized void bootstrap() {
+        if (bootstrapped) return;
+
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        KnowledgeRegistry.rebuild();
+        CraftingRuleRegistry.rebuild();
+        GatherBlockRegistry.rebuild();
+        ItemProfileRegistry.rebuild();
+
+        bootstrapped = true;
+    }
+
+    /** A player somewhere in the middle of progression, reproducible per seed. */
+    static PlayerKnowledgeData randomPlayer(Random random) {
+        PlayerKnowledgeData data = new PlayerKnowledgeData();
+        for (KnowledgeDefinition def : KnowledgeRegistry.all()) {
+            int ordinal = def.getOrdinal();
+            if (random.nextInt(4) == 0) continue; // never touched this knowledge
+
+            int tier = random.nextInt(def.getMaxTier() + 1);
+            data.setTier(ordinal, tier);
+            data.setMinutes(ordinal, random.nextInt(Math.max(1, def.getMinutesForTier(tier + 1))));
+            data.setLastXpMinuteIndex(ordinal, random.nextInt(500_000));
+        }
+        return data;
+    }
+}
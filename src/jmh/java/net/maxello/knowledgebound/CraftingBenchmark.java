@@ -0,0 +1,46 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.util.Identifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crafting rule decision (CraftingKnowledgeRule.outcome), i.e. what apply()
+ * does before it touches the stack or sends a message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CraftingBenchmark {
+
+    private CraftingKnowledgeRule rule;
+    private SplittableRandom random;
+    private int tier;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+        rule = CraftingRuleRegistry.getForItem(new Identifier("minecraft", "iron_pickaxe"));
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public CraftingKnowledgeRule.Outcome outcome() {
+        tier = (tier + 1) % CompiledConfig.CRAFTING_TIERS;
+        return rule.outcome(tier, random.nextDouble());
+    }
+}
@@ -0,0 +1,87 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.block.Block;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Block-break classification and held-item tool tier lookup, the two
+ * table reads on every block break.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GatherBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    private Block[] blocks;
+    private ItemStack[] heldStacks;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+
+        // Every registered block/item, shuffled, so the mix isn't branch-predictor friendly
+        List<Block> allBlocks = new ArrayList<>();
+        Registries.BLOCK.forEach(allBlocks::add);
+        List<Item> allItems = new ArrayList<>();
+        Registries.ITEM.forEach(allItems::add);
+
+        Random random = new Random(42);
+        Collections.shuffle(allBlocks, random);
+        Collections.shuffle(allItems, random);
+
+        blocks = new Block[SAMPLES];
+        heldStacks = new ItemStack[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            blocks[i] = allBlocks.get(i % allBlocks.size());
+            heldStacks[i] = new ItemStack(allItems.get(i % allItems.size()));
+        }
+    }
+
+    @Benchmark
+    public GatherBlockRegistry.Entry classifyBlock() {
+        int i = cursor++ & (SAMPLES - 1);
+        return GatherBlockRegistry.get(blocks[i]);
+    }
+
+    @Benchmark
+    public KnowledgeDefinition.ToolTier toolTierFromItem() {
+        int i = cursor++ & (SAMPLES - 1);
+        return KnowledgeEvents.ToolTierHelper.fromItem(heldStacks[i]);
+    }
+
+    /** Full table build, as done on server start and /kb reload. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public void rebuildTables(Blackhole blackhole) {
+        GatherBlockRegistry.rebuild();
+        ItemProfileRegistry.rebuild();
+        blackhole.consume(GatherBlockRegistry.get(blocks[0]));
+    }
+}
@@ -0,0 +1,109 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtTagSizeTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save/load round-trips as done by writeToNbt/readFromNbt, for a whole
+ * server's worth of players per invocation (one periodic save pass).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KnowledgeCodecBenchmark {
+
+    @Param({"20", "200", "1000"})
+    public int players;
+
+    private PlayerKnowledgeData[] data;
+    private NbtCompound[] records;
+    private byte[][] files;
+    private PlayerKnowledgeData scratch;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkSupport.bootstrap();
+
+        Random random = new Random(42);
+        data = new PlayerKnowledgeData[players];
+        records = new NbtCompound[players];
+        files = new byte[players][];
+        for (int i = 0; i < players; i++) {
+            data[i] = BenchmarkSupport.randomPlayer(random);
+            records[i] = KnowledgeNbtCodec.encode(data[i]);
+            files[i] = compress(records[i]);
+        }
+        scratch = new PlayerKnowledgeData();
+    }
+
+    /** Encode every player (all changed since the last save). */
+    @Benchmark
+    public void encode(Blackhole blackhole) {
+        for (PlayerKnowledgeData player : data) {
+            blackhole.consume(KnowledgeNbtCodec.encode(player));
+        }
+    }
+
+    /** Save pass where nobody changed: served from the cached record. */
+    @Benchmark
+    public void encodeCachedUnchanged(Blackhole blackhole) {
+        for (PlayerKnowledgeData player : data) {
+            blackhole.consume(KnowledgeNbtCodec.encodeCached(player));
+        }
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        for (NbtCompound record : records) {
+            KnowledgeNbtCodec.decode(record, scratch);
+            blackhole.consume(scratch.getVersion());
+        }
+    }
+
+    /** Encode + compress, i.e. the bytes the knowledge writer puts on disk. */
+    @Benchmark
+    public void encodeToFile(Blackhole blackhole) throws IOException {
+        for (PlayerKnowledgeData player : data) {
+            blackhole.consume(compress(KnowledgeNbtCodec.encode(player)));
+        }
+    }
+
+    /** Decompress + decode, i.e. a player's knowledge being loaded at login. */
+    @Benchmark
+    public void decodeFromFile(Blackhole blackhole) throws IOException {
+        for (byte[] file : files) {
+            NbtCompound record = NbtIo.readCompressed(new ByteArrayInputStream(file),
+                    NbtTagSizeTracker.ofUnlimitedBytes());
+            KnowledgeNbtCodec.decode(record, scratch);
+            blackhole.consume(scratch.getVersion());
+        }
+    }
+
+    private static byte[] compress(NbtCompound record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        NbtIo.writeCompressed(record, bytes);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,67 @@
+package net.maxello.knowledgebound;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The state change behind grantMinuteIfAllowed (PlayerKnowledgeManager.creditMinute)
+ * spread over many players: credited minutes, level-ups and same-minute rejections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KnowledgeProgressBenchmark {
+
+    @Param({"20", "200"})
+    public int players;
+
+    private PlayerKnowledgeData[] data;
+    private KnowledgeDefinition[] definitions;
+    private int cursor;
+    private long minute = 1_000_000L;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+
+        Random random = new Random(42);
+        data = new PlayerKnowledgeData[players];
+        for (int i = 0; i < players; i++) {
+            data[i] = BenchmarkSupport.randomPlayer(random);
+        }
+        definitions = KnowledgeRegistry.all().toArray(new KnowledgeDefinition[0]);
+    }
+
+    /** Every call lands in a new minute, so the minute is always credited. */
+    @Benchmark
+    public int creditNewMinute() {
+        int i = cursor++ & Integer.MAX_VALUE;
+        PlayerKnowledgeData player = data[i % players];
+        KnowledgeDefinition def = definitions[i % definitions.length];
+        return PlayerKnowledgeManager.creditMinute(player, def, minute++);
+    }
+
+    /** Repeated actions within the same minute, the common case while gathering. */
+    @Benchmark
+    public int creditSameMinute() {
+        int i = cursor++ & Integer.MAX_VALUE;
+        PlayerKnowledgeData player = data[i % players];
+        KnowledgeDefinition def = definitions[i % definitions.length];
+        return PlayerKnowledgeManager.creditMinute(player, def, 0L);
+    }
+}
@@ -1,16 +1,10 @@
 package net.maxello.knowledgebound;
 
-import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents;
 import net.minecraft.entity.EquipmentSlot;
-import net.minecraft.item.ArmorItem;
-import net.minecraft.item.ArmorMaterial;
-import net.minecraft.item.ArmorMaterials;
 import net.minecraft.item.ItemStack;
 import net.minecraft.registry.Registries;
 import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.text.Text;
-import net.minecraft.util.Formatting;
-import net.minecraft.util.Identifier;
 
 public final class ArmorRestrictionHandler {
 
@@ -18,44 +12,68 @@ public final class ArmorRestrictionHandler {
     }
 
     public static void init() {
-        ServerTickEvents.END_SERVER_TICK.register(server -> {
-            for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
-                checkPlayerArmor(player);
-            }
+        // Only react when armor actually changes; vanilla already detects
+        // equipment changes every tick, so steady state costs nothing extra.
+        ServerEntityEvents.EQUIPMENT_CHANGE.register((entity, slot, previousStack, currentStack) -> {
+            if (!(entity instanceof ServerPlayerEntity player)) return;
+            if (slot.getType() != EquipmentSlot.Type.ARMOR) return;
+            if (currentStack.isEmpty()) return;
+            // Placeholder knowledge (late load): checked once the real record is merged
+            if (PlayerKnowledgeManager.getData(player).isLoading()) return;
+
+            long start = System.nanoTime();
+            checkSlot(player, slot, getCombatTier(player));
+            KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.ARMOR_CHECK, start);
         });
     }
 
-    private static void checkPlayerArmor(ServerPlayerEntity player) {
-        // Combat knowledge = best of Melee + Ranged Combat
-        int meleeTier  = PlayerKnowledgeManager.getTier(player, KnowledgeRegistry.MELEE_COMBAT_ID);
-        int rangedTier = PlayerKnowledgeManager.getTier(player, KnowledgeRegistry.RANGED_COMBAT_ID);
-        int combatTier = Math.max(meleeTier, rangedTier);
+    /**
+     * Re-check all armor slots, e.g. after the player's combat tier changed.
+     */
+    public static void checkPlayerArmor(ServerPlayerEntity player) {
+        if (PlayerKnowledgeManager.getData(player).isLoading()) return; // see finishLateLoad
+        long start = System.nanoTime();
+        int combatTier = getCombatTier(player);
 
         // Check all armor slots
         checkSlot(player, EquipmentSlot.HEAD,  combatTier);
         checkSlot(player, EquipmentSlot.CHEST, combatTier);
         checkSlot(player, EquipmentSlot.LEGS,  combatTier);
         checkSlot(player, EquipmentSlot.FEET,  combatTier);
+        KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.ARMOR_CHECK, start);
+    }
+
+    /** Called whenever Melee or Ranged Combat tier changes. */
+    public static void onCombatTierChanged(ServerPlayerEntity player) {
+        checkPlayerArmor(player);
+    }
+
+    private static int getCombatTier(ServerPlayerEntity player) {
+        // Combat knowledge = best of Melee + Ranged Combat
+        int meleeTier  = PlayerKnowledgeManager.getTier(player, KnowledgeRegistry.MELEE_COMBAT_ID);
+        int rangedTier = PlayerKnowledgeManager.getTier(player, KnowledgeRegistry.RANGED_COMBAT_ID);
+        return Math.max(meleeTier, rangedTier);
     }
 
     private static void checkSlot(ServerPlayerEntity player, EquipmentSlot slot, int combatTier) {
         ItemStack stack = player.getEquippedStack(slot);
         if (stack.isEmpty()) return;
-        if (!(stack.getItem() instanceof ArmorItem armorItem)) return;
 
-        int requiredTier = getRequiredArmourTier(armorItem, stack);
+        // Precomputed from config overrides + vanilla armor material
+        int requiredTier = ItemProfileRegistry.get(stack.getItem()).requiredArmorTier;
         if (requiredTier < 0) {
             // Unknown / unrestricted armor → allowed
             return;
         }
 
-        if (combatTier < requiredTier) {
-            String tierName = getTierName(requiredTier);
+        KnowledgeJfrEvents.ArmorCheckEvent event = new KnowledgeJfrEvents.ArmorCheckEvent();
+        event.begin();
 
-            Text msg = Text.literal("You need " + tierName + " Combat Knowledge to wear this armor!")
-                    .formatted(Formatting.RED);
+        boolean removed = combatTier < requiredTier;
+        if (removed) {
             // Action bar message
-            player.sendMessage(msg, true);
+            PlayerKnowledgeManager.sendActionBar(player,
+                    KnowledgeBoundTextFormatter.armorRequired(requiredTier), KnowledgeOutbox.PRIORITY_WARNING);
 
             // Remove from armor slot
             ItemStack copy = stack.copy();
@@ -66,56 +84,15 @@ public final class ArmorRestrictionHandler {
                 player.dropItem(copy, false);
             }
         }
-    }
-
-    /**
-     * Determine required tier for this armor, using config first, then vanilla material mapping.
-     */
-    private static int getRequiredArmourTier(ArmorItem armorItem, ItemStack stack) {
-        KnowledgeBoundConfig.ArmorTierConfig cfg = KnowledgeBoundConfig.INSTANCE.armorTiers;
-
-        // 1) Check per-item override from config.extraItemTiers
-        Identifier itemId = Registries.ITEM.getId(armorItem);
-        if (itemId != null) {
-            Integer override = cfg.extraItemTiers.get(itemId.toString());
-            if (override != null) {
-                return override;
-            }
-        }
 
-        // 2) Fallback: use material-based defaults (also configurable)
-        ArmorMaterial mat = armorItem.getMaterial();
-
-        if (mat == ArmorMaterials.LEATHER) {
-            return cfg.leatherTier;
-        } else if (mat == ArmorMaterials.CHAIN) {
-            return cfg.chainTier;
-        } else if (mat == ArmorMaterials.IRON) {
-            return cfg.ironTier;
-        } else if (mat == ArmorMaterials.GOLD) {
-            return cfg.goldTier;
-        } else if (mat == ArmorMaterials.DIAMOND) {
-            return cfg.diamondTier;
-        } else if (mat == ArmorMaterials.NETHERITE) {
-            return cfg.netheriteTier;
+        if (event.shouldCommit()) {
+            event.player = player.getGameProfile().getName();
+            event.slot = slot.getName();
+            event.item = Registries.ITEM.getId(stack.getItem()).toString();
+            event.requiredTier = requiredTier;
+            event.combatTier = combatTier;
+            event.removed = removed;
+            event.commit();
         }
-
-        // 3) Unknown / modded material with no override: unrestricted by default
-        return -1;
-    }
-
-    /**
-     * Pretty name for the tier shown in the message.
-     */
-    private static String getTierName(int tier) {
-        return switch (tier) {
-            case 0 -> "Leather";
-            case 1 -> "Chainmail";
-            case 2 -> "Iron";
-            case 3 -> "Gold";
-            case 4 -> "Diamond";
-            case 5 -> "Netherite";
-            default -> "higher";
-        };
     }
 }
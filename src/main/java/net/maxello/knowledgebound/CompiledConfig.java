@@ -0,0 +1,279 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.util.Identifier;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, validated snapshot of {@link KnowledgeBoundConfig}.
+ *
+ * The Gson-shaped config is only read while compiling; everything else
+ * reads {@link #get()}. Ids are pre-parsed, chances are clamped and
+ * normalized, and per-tier values are primitive arrays. A reload compiles
+ * a new snapshot and swaps the reference.
+ */
+public final class CompiledConfig {
+
+    /** Crafting chances are defined for knowledge tiers 0..4. */
+    public static final int CRAFTING_TIERS = 5;
+
+    private static volatile CompiledConfig current = compile(new KnowledgeBoundConfig());
+
+    // XP progression
+    public final int[] baseMinutesPerTier;
+    public final double minutesMultiplier;
+
+    // Gather fail chance per knowledge tier (index 0..4, clamped for higher tiers)
+    public final double[] forestryGatherFail;
+    public final double[] miningGatherFail;
+    public final double[] diggingGatherFail;
+    public final double[] farmingGatherFail;
+
+    // Crafting chances per knowledge tier, normalized so fail + poor + normal == 1
+    public final CraftingChance[] toolsmithingChances;
+    public final CraftingChance[] weaponsmithingChances;
+    public final CraftingChance[] armouringChances;
+
+    // Armor requirements
+    public final int leatherTier;
+    public final int chainTier;
+    public final int ironTier;
+    public final int goldTier;
+    public final int diamondTier;
+    public final int netheriteTier;
+    public final Map<Identifier, Integer> armorItemTiers;
+
+    // Extension lists
+    public final Set<Identifier> extraForestryBlocks;
+    public final Set<Identifier> extraMiningBlocks;
+    public final Set<Identifier> extraDiggingBlocks;
+    public final Set<Identifier> extraFarmingBlocks;
+    public final Set<Identifier> extraToolItems;
+    public final Set<Identifier> extraWeaponItems;
+    public final Set<Identifier> extraArmorItems;
+
+    // Server / storage
+    public final String knowledgeStore;
+    public final int recentPlayerCacheSize;
+    public final int knowledgeSaveIntervalSeconds;
+    public final boolean journalEnabled;
+    public final int journalFlushIntervalMillis;
+    public final int journalSnapshotIntervalMinutes;
+    public final int journalRetentionHours;
+    public final String knowledgeSync;
+    public final String knowledgeSyncDirectory;
+    public final int knowledgeSyncIntervalSeconds;
+
+    // Monitoring
+    public final int metricsPort;
+    public final String metricsBindAddress;
+
+    public static final class CraftingChance {
+        public final double failChance;
+        public final double poorChance;
+        public final double normalChance;
+
+        CraftingChance(double failChance, double poorChance, double normalChance) {
+            this.failChance = failChance;
+            this.poorChance = poorChance;
+            this.normalChance = normalChance;
+        }
+    }
+
+    private CompiledConfig(KnowledgeBoundConfig raw) {
+        this.baseMinutesPerTier = compileMinutes(raw.baseMinutesPerTier);
+        this.minutesMultiplier = raw.minutesMultiplier > 0.0 ? raw.minutesMultiplier : 1.0;
+        if (raw.minutesMultiplier <= 0.0) {
+            warn("minutesMultiplier must be > 0, using 1.0");
+        }
+
+        this.forestryGatherFail = compileGatherFail(raw.forestryGatherFail, "forestryGatherFail");
+        this.miningGatherFail   = compileGatherFail(raw.miningGatherFail, "miningGatherFail");
+        this.diggingGatherFail  = compileGatherFail(raw.diggingGatherFail, "diggingGatherFail");
+        this.farmingGatherFail  = compileGatherFail(raw.farmingGatherFail, "farmingGatherFail");
+
+        this.toolsmithingChances   = compileCrafting(raw.toolsmithingChances, "toolsmithingChances");
+        this.weaponsmithingChances = compileCrafting(raw.weaponsmithingChances, "weaponsmithingChances");
+        this.armouringChances      = compileCrafting(raw.armouringChances, "armouringChances");
+
+        KnowledgeBoundConfig.ArmorTierConfig armor = raw.armorTiers != null
+                ? raw.armorTiers
+                : new KnowledgeBoundConfig.ArmorTierConfig();
+        this.leatherTier   = armor.leatherTier;
+        this.chainTier     = armor.chainTier;
+        this.ironTier      = armor.ironTier;
+        this.goldTier      = armor.goldTier;
+        this.diamondTier   = armor.diamondTier;
+        this.netheriteTier = armor.netheriteTier;
+        this.armorItemTiers = compileArmorOverrides(armor.extraItemTiers);
+
+        this.extraForestryBlocks = compileIds(raw.extraForestryBlocks, "extraForestryBlocks");
+        this.extraMiningBlocks   = compileIds(raw.extraMiningBlocks, "extraMiningBlocks");
+        this.extraDiggingBlocks  = compileIds(raw.extraDiggingBlocks, "extraDiggingBlocks");
+        this.extraFarmingBlocks  = compileIds(raw.extraFarmingBlocks, "extraFarmingBlocks");
+        this.extraToolItems      = compileIds(raw.extraToolItems, "extraToolItems");
+        this.extraWeaponItems    = compileIds(raw.extraWeaponItems, "extraWeaponItems");
+        this.extraArmorItems     = compileIds(raw.extraArmorItems, "extraArmorItems");
+
+        String store = raw.knowledgeStore != null ? raw.knowledgeStore.trim().toLowerCase(Locale.ROOT) : "file";
+        if (!store.equals("file") && !store.equals("h2") && !store.equals("mmap")) {
+            warn("knowledgeStore must be \"file\", \"h2\" or \"mmap\", using \"file\"");
+            store = "file";
+        }
+        this.knowledgeStore = store;
+        this.recentPlayerCacheSize = Math.max(0, raw.recentPlayerCacheSize);
+        this.knowledgeSaveIntervalSeconds = Math.max(0, raw.knowledgeSaveIntervalSeconds);
+        this.journalEnabled = raw.journalEnabled;
+        this.journalFlushIntervalMillis = Math.max(10, raw.journalFlushIntervalMillis);
+        this.journalSnapshotIntervalMinutes = Math.max(1, raw.journalSnapshotIntervalMinutes);
+        this.journalRetentionHours = Math.max(1, raw.journalRetentionHours);
+
+        String sync = raw.knowledgeSync != null ? raw.knowledgeSync.trim().toLowerCase(Locale.ROOT) : "off";
+        String syncDirectory = raw.knowledgeSyncDirectory != null ? raw.knowledgeSyncDirectory.trim() : "";
+        if (!sync.equals("off") && !sync.equals("directory") && !sync.equals("memory")) {
+            warn("knowledgeSync must be \"off\", \"directory\" or \"memory\", using \"off\"");
+            sync = "off";
+        }
+        if (sync.equals("directory") && syncDirectory.isEmpty()) {
+            warn("knowledgeSync = \"directory\" needs knowledgeSyncDirectory, using \"off\"");
+            sync = "off";
+        }
+        this.knowledgeSync = sync;
+        this.knowledgeSyncDirectory = syncDirectory;
+        this.knowledgeSyncIntervalSeconds = Math.max(1, raw.knowledgeSyncIntervalSeconds);
+
+        if (raw.metricsPort < 0 || raw.metricsPort > 65535) {
+            warn("metricsPort must be 0..65535, metrics endpoint disabled");
+            this.metricsPort = 0;
+        } else {
+            this.metricsPort = raw.metricsPort;
+        }
+        this.metricsBindAddress = raw.metricsBindAddress != null && !raw.metricsBindAddress.isBlank()
+                ? raw.metricsBindAddress
+                : "127.0.0.1";
+    }
+
+    /** Current snapshot; never null. */
+    public static CompiledConfig get() {
+        return current;
+    }
+
+    static CompiledConfig compile(KnowledgeBoundConfig raw) {
+        return new CompiledConfig(raw);
+    }
+
+    static void set(CompiledConfig compiled) {
+        current = compiled;
+    }
+
+    /** Fail chance for a gather knowledge tier, clamped to the defined tiers. */
+    public static double chanceForTier(double[] chances, int tier) {
+        int clamped = Math.max(0, Math.min(tier, chances.length - 1));
+        return chances[clamped];
+    }
+
+    // --------------------------------------------------
+    //  Compilation helpers
+    // --------------------------------------------------
+
+    private static int[] compileMinutes(int[] raw) {
+        if (raw == null || raw.length == 0) {
+            warn("baseMinutesPerTier is empty, using defaults");
+            return new KnowledgeBoundConfig().baseMinutesPerTier.clone();
+        }
+        int[] result = new int[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            result[i] = Math.max(1, raw[i]);
+        }
+        return result;
+    }
+
+    private static double[] compileGatherFail(KnowledgeBoundConfig.GatherFailConfig raw, String key) {
+        if (raw == null) {
+            warn(key + " is missing, gathering never fails for it");
+            return new double[] { 0.0 };
+        }
+        return new double[] {
+                clampChance(raw.tier0, key),
+                clampChance(raw.tier1, key),
+                clampChance(raw.tier2, key),
+                clampChance(raw.tier3, key),
+                clampChance(raw.tier4, key)
+        };
+    }
+
+    private static CraftingChance[] compileCrafting(KnowledgeBoundConfig.CraftingTierChances[] raw, String key) {
+        CraftingChance[] result = new CraftingChance[CRAFTING_TIERS];
+        for (int tier = 0; tier < CRAFTING_TIERS; tier++) {
+            if (raw == null || raw.length == 0 || raw[Math.min(tier, raw.length - 1)] == null) {
+                result[tier] = new CraftingChance(0.0, 0.0, 1.0);
+                continue;
+            }
+
+            // Missing tiers reuse the last defined one
+            KnowledgeBoundConfig.CraftingTierChances c = raw[Math.min(tier, raw.length - 1)];
+            double fail = Math.max(0.0, c.failChance);
+            double poor = Math.max(0.0, c.poorChance);
+            double normal = Math.max(0.0, c.normalChance);
+
+            double sum = fail + poor + normal;
+            if (sum <= 0.0) {
+                result[tier] = new CraftingChance(0.0, 0.0, 1.0);
+            } else {
+                result[tier] = new CraftingChance(fail / sum, poor / sum, normal / sum);
+            }
+        }
+        if (raw == null || raw.length == 0) {
+            warn(key + " is empty, crafting never fails for it");
+        }
+        return result;
+    }
+
+    private static Map<Identifier, Integer> compileArmorOverrides(Map<String, Integer> raw) {
+        Map<Identifier, Integer> result = new HashMap<>();
+        if (raw == null) return Collections.unmodifiableMap(result);
+
+        for (Map.Entry<String, Integer> e : raw.entrySet()) {
+            Identifier id = Identifier.tryParse(e.getKey());
+            if (id == null || e.getValue() == null) {
+                warn("invalid armorTiers.extraItemTiers entry: " + e.getKey());
+                continue;
+            }
+            result.put(id, e.getValue());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static Set<Identifier> compileIds(List<String> raw, String key) {
+        Set<Identifier> result = new HashSet<>();
+        if (raw == null) return Collections.unmodifiableSet(result);
+
+        for (String idStr : raw) {
+            Identifier id = idStr != null ? Identifier.tryParse(idStr) : null;
+            if (id == null) {
+                warn("invalid " + key + " id: " + idStr);
+                continue;
+            }
+            result.add(id);
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static double clampChance(double value, String key) {
+        if (value < 0.0 || value > 1.0 || Double.isNaN(value)) {
+            warn(key + " has a chance outside 0.0–1.0 (" + value + "), clamping");
+            return Double.isNaN(value) ? 0.0 : Math.max(0.0, Math.min(1.0, value));
+        }
+        return value;
+    }
+
+    private static void warn(String message) {
+        KnowledgeBound.LOGGER.warn("[KnowledgeBound] Config: {}", message);
+    }
+}
@@ -1,11 +1,11 @@
 package net.maxello.knowledgebound;
 
 import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Identifier;
 
 import java.util.Map;
-import java.util.Random;
 
 /**
  * Defines how a particular set of recipes behaves under knowledge:
@@ -15,6 +15,12 @@ import java.util.Random;
  */
 public class CraftingKnowledgeRule {
 
+    public enum Outcome {
+        FAIL,
+        POOR,
+        NORMAL
+    }
+
     public static class TierChance {
         public final double goodChance;
         public final double poorChance;
@@ -28,8 +34,10 @@ public class CraftingKnowledgeRule {
     private final Identifier id;
     private final Identifier knowledgeId;
     private final double poorDurabilityFraction;
-    private final Map<Integer, TierChance> tierChances;
-    private final Random random = new Random();
+
+    // Flattened from the constructor's tier map, indexed by tier; tiers past the end use tier 0
+    private final double[] failChanceByTier;
+    private final double[] poorChanceByTier;
 
     public CraftingKnowledgeRule(Identifier id,
                                  Identifier knowledgeId,
@@ -38,7 +46,20 @@ public class CraftingKnowledgeRule {
         this.id = id;
         this.knowledgeId = knowledgeId;
         this.poorDurabilityFraction = poorDurabilityFraction;
-        this.tierChances = tierChances;
+
+        int maxTier = 0;
+        for (Integer tier : tierChances.keySet()) {
+            maxTier = Math.max(maxTier, tier);
+        }
+        TierChance fallback = tierChances.getOrDefault(0, new TierChance(1.0, 0.0));
+        this.failChanceByTier = new double[maxTier + 1];
+        this.poorChanceByTier = new double[maxTier + 1];
+        for (int tier = 0; tier <= maxTier; tier++) {
+            // Fallback to tier 0 chances if none are defined for this tier
+            TierChance tc = tierChances.getOrDefault(tier, fallback);
+            failChanceByTier[tier] = Math.max(0.0, 1.0 - tc.goodChance - tc.poorChance);
+            poorChanceByTier[tier] = Math.max(0.0, tc.poorChance);
+        }
     }
 
     public Identifier getId() {
@@ -50,60 +71,73 @@ public class CraftingKnowledgeRule {
     }
 
     /**
-     * Apply this rule to the crafted stack.
+     * Apply this rule to the crafted stack, in place.
+     *
+     * A failed craft empties the stack; a poor craft lowers its durability;
+     * a normal craft leaves it untouched. The JFR Crafting event's fields
+     * (and their strings) are only filled in while a recording enables it.
      *
      * @param player        the crafter
-     * @param itemId        ID of the crafted item
-     * @param originalStack vanilla output
+     * @param stack         vanilla output, about to be taken
      * @param knowledgeTier player's tier in the relevant knowledge
-     * @return modified stack, original stack, or EMPTY on full failure
+     * @return the outcome that was applied
      */
-    public ItemStack apply(ServerPlayerEntity player,
-                           Identifier itemId,
-                           ItemStack originalStack,
-                           int knowledgeTier) {
-
-        // Fallback to tier 0 chances if none are defined for this tier
-        TierChance tc = tierChances.get(knowledgeTier);
-        if (tc == null) {
-            tc = tierChances.getOrDefault(0, new TierChance(1.0, 0.0));
-        }
+    public Outcome apply(ServerPlayerEntity player, ItemStack stack, int knowledgeTier) {
 
-        double roll = random.nextDouble();
+        KnowledgeJfrEvents.CraftingEvent event = new KnowledgeJfrEvents.CraftingEvent();
+        event.begin();
 
-        double failChance = Math.max(0.0, 1.0 - tc.goodChance - tc.poorChance);
-        double poorChance = Math.max(0.0, tc.poorChance);
+        Outcome outcome = outcome(knowledgeTier, PlayerKnowledgeManager.nextRoll(player));
+        KnowledgeMetrics.craftingOutcome(knowledgeId, outcome);
 
-        if (roll < failChance) {
-            // Total failure: no item, red message
-            player.sendMessage(
-                    KnowledgeBoundTextFormatter.craftingFailSmithing(),
-                    true
-            );
-            return ItemStack.EMPTY;
+        if (event.shouldCommit()) {
+            event.player = player.getGameProfile().getName();
+            event.knowledge = knowledgeId.toString();
+            event.tier = knowledgeTier;
+            event.item = Registries.ITEM.getId(stack.getItem()).toString();
+            event.outcome = outcome.name();
+            event.commit();
         }
 
-        if (roll < failChance + poorChance) {
+        if (outcome == Outcome.FAIL) {
+            // Total failure: no item, red message
+            stack.setCount(0);
+            PlayerKnowledgeManager.sendActionBar(player,
+                    KnowledgeBoundTextFormatter.craftingFailSmithing(),
+                    KnowledgeOutbox.PRIORITY_RESULT);
+        } else if (outcome == Outcome.POOR) {
             // Poor quality item with reduced durability
-            ItemStack poor = originalStack.copy();
-            int maxDmg = poor.getMaxDamage();
+            int maxDmg = stack.getMaxDamage();
 
             if (maxDmg > 0) {
                 int remaining = Math.max(1, (int) Math.round(maxDmg * poorDurabilityFraction));
-                int damage = maxDmg - remaining;
-                poor.setDamage(damage);
+                stack.setDamage(maxDmg - remaining);
             }
 
             // Cyan + purple "poor" quality line
-            player.sendMessage(
-                    KnowledgeBoundTextFormatter.craftingQualitySmithing("poor"),
-                    true
-            );
-            return poor;
+            PlayerKnowledgeManager.sendActionBar(player,
+                    KnowledgeBoundTextFormatter.craftingPoorSmithing(),
+                    KnowledgeOutbox.PRIORITY_RESULT);
         }
+        // NORMAL: successful craft at full quality (no extra message)
 
+        return outcome;
+    }
 
-        // Successful craft at full quality (no extra message)
-        return originalStack;
+    /**
+     * Which outcome a roll in [0, 1) gives at this knowledge tier.
+     */
+    public Outcome outcome(int knowledgeTier, double roll) {
+        int tier = knowledgeTier >= 0 && knowledgeTier < failChanceByTier.length ? knowledgeTier : 0;
+        double failChance = failChanceByTier[tier];
+        double poorChance = poorChanceByTier[tier];
+
+        if (roll < failChance) {
+            return Outcome.FAIL;
+        }
+        if (roll < failChance + poorChance) {
+            return Outcome.POOR;
+        }
+        return Outcome.NORMAL;
     }
 }
@@ -2,59 +2,63 @@ package net.maxello.knowledgebound;
 
 import net.minecraft.util.Identifier;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class CraftingRuleRegistry {
 
-    // Rules keyed by crafted ITEM id
-    private static final Map<Identifier, CraftingKnowledgeRule> RULES_BY_ITEM = new HashMap<>();
+    // Rules keyed by crafted ITEM id; replaced as a whole by rebuild()
+    private static volatile Map<Identifier, CraftingKnowledgeRule> rulesByItem = Map.of();
 
     public static void init() {
         KnowledgeBound.LOGGER.info("[KnowledgeBound] Registering crafting knowledge rules…");
-        registerToolRules();
-        registerArmorRules();
-        registerWeaponRules();
+        rebuild();
+    }
+
+    /**
+     * (Re)create all rules from the current config and swap them in.
+     */
+    public static void rebuild() {
+        CompiledConfig cfg = CompiledConfig.get();
+        Map<Identifier, CraftingKnowledgeRule> rules = new HashMap<>();
+
+        registerToolRules(rules, cfg);
+        registerArmorRules(rules, cfg);
+        registerWeaponRules(rules, cfg);
+
+        rulesByItem = rules;
     }
 
     /**
      * Returns the rule for the given crafted item ID, or null if none registered.
      */
     public static CraftingKnowledgeRule getForItem(Identifier itemId) {
-        return RULES_BY_ITEM.get(itemId);
+        return rulesByItem.get(itemId);
     }
 
     /** Basic helper: register a rule for a set of item IDs. */
-    private static void register(CraftingKnowledgeRule rule, Identifier... itemIds) {
+    private static void register(Map<Identifier, CraftingKnowledgeRule> rules,
+                                 CraftingKnowledgeRule rule,
+                                 Iterable<Identifier> itemIds) {
         for (Identifier itemId : itemIds) {
-            RULES_BY_ITEM.put(itemId, rule);
+            rules.put(itemId, rule);
         }
     }
 
+    private static void register(Map<Identifier, CraftingKnowledgeRule> rules,
+                                 CraftingKnowledgeRule rule,
+                                 Identifier... itemIds) {
+        register(rules, rule, Arrays.asList(itemIds));
+    }
+
     // --------------------------------------------------
     //  Toolsmithing: tools (currently wooden, stone, iron, diamond, netherite)
     //  Chances per knowledge tier come from config.toolsmithingChances
     // --------------------------------------------------
 
-    private static void registerToolRules() {
-        Map<Integer, CraftingKnowledgeRule.TierChance> tierChances = new HashMap<>();
-
-        // Fill per-knowledge-tier chances (0..4) from config
-        KnowledgeBoundConfig.CraftingTierChances[] cfgArr =
-                KnowledgeBoundConfig.INSTANCE.toolsmithingChances;
-
-        for (int tier = 0; tier <= 4; tier++) {
-            int idx = clamp(tier, 0, cfgArr.length - 1);
-            KnowledgeBoundConfig.CraftingTierChances c = cfgArr[idx];
-            c.normalize();
-
-            // In TierChance, first param = goodChance, second = poorChance.
-            // FailChance is implicit: 1 - (good + poor).
-            double good = c.normalChance;
-            double poor = c.poorChance;
-
-            tierChances.put(tier, new CraftingKnowledgeRule.TierChance(good, poor));
-        }
+    private static void registerToolRules(Map<Identifier, CraftingKnowledgeRule> rules, CompiledConfig cfg) {
+        Map<Integer, CraftingKnowledgeRule.TierChance> tierChances = tierChancesOf(cfg.toolsmithingChances);
 
         CraftingKnowledgeRule rule = new CraftingKnowledgeRule(
                 new Identifier(KnowledgeBound.MOD_ID, "tool_crafting"),
@@ -65,6 +69,7 @@ public class CraftingRuleRegistry {
 
         // Vanilla wooden tools
         register(
+                rules,
                 rule,
                 new Identifier("minecraft", "wooden_sword"),
                 new Identifier("minecraft", "wooden_axe"),
@@ -75,6 +80,7 @@ public class CraftingRuleRegistry {
 
         // Vanilla stone tools
         register(
+                rules,
                 rule,
                 new Identifier("minecraft", "stone_sword"),
                 new Identifier("minecraft", "stone_axe"),
@@ -85,6 +91,7 @@ public class CraftingRuleRegistry {
 
         // Vanilla iron tools
         register(
+                rules,
                 rule,
                 new Identifier("minecraft", "iron_sword"),
                 new Identifier("minecraft", "iron_axe"),
@@ -95,6 +102,7 @@ public class CraftingRuleRegistry {
 
         // Vanilla diamond tools
         register(
+                rules,
                 rule,
                 new Identifier("minecraft", "diamond_sword"),
                 new Identifier("minecraft", "diamond_axe"),
@@ -105,6 +113,7 @@ public class CraftingRuleRegistry {
 
         // Vanilla netherite tools
         register(
+                rules,
                 rule,
                 new Identifier("minecraft", "netherite_sword"),
                 new Identifier("minecraft", "netherite_axe"),
@@ -114,14 +123,7 @@ public class CraftingRuleRegistry {
         );
 
         // Extra tool items from config (e.g. modded tools)
-        for (String idStr : KnowledgeBoundConfig.INSTANCE.extraToolItems) {
-            try {
-                Identifier id = new Identifier(idStr);
-                RULES_BY_ITEM.put(id, rule);
-            } catch (Exception e) {
-                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Invalid extraToolItems id in config: {}", idStr);
-            }
-        }
+        register(rules, rule, cfg.extraToolItems);
     }
 
     // --------------------------------------------------
@@ -129,22 +131,8 @@ public class CraftingRuleRegistry {
     //  Chances per knowledge tier come from config.armouringChances
     // --------------------------------------------------
 
-    private static void registerArmorRules() {
-        Map<Integer, CraftingKnowledgeRule.TierChance> tierChances = new HashMap<>();
-
-        KnowledgeBoundConfig.CraftingTierChances[] cfgArr =
-                KnowledgeBoundConfig.INSTANCE.armouringChances;
-
-        for (int tier = 0; tier <= 4; tier++) {
-            int idx = clamp(tier, 0, cfgArr.length - 1);
-            KnowledgeBoundConfig.CraftingTierChances c = cfgArr[idx];
-            c.normalize();
-
-            double good = c.normalChance;
-            double poor = c.poorChance;
-
-            tierChances.put(tier, new CraftingKnowledgeRule.TierChance(good, poor));
-        }
+    private static void registerArmorRules(Map<Identifier, CraftingKnowledgeRule> rules, CompiledConfig cfg) {
+        Map<Integer, CraftingKnowledgeRule.TierChance> tierChances = tierChancesOf(cfg.armouringChances);
 
         CraftingKnowledgeRule rule = new CraftingKnowledgeRule(
                 new Identifier(KnowledgeBound.MOD_ID, "armor_crafting"),
@@ -155,6 +143,7 @@ public class CraftingRuleRegistry {
 
         // Vanilla armor set
         register(
+                rules,
                 rule,
                 // Leather
                 new Identifier("minecraft", "leather_helmet"),
@@ -197,14 +186,7 @@ public class CraftingRuleRegistry {
         );
 
         // Extra armor items from config (e.g. modded armor)
-        for (String idStr : KnowledgeBoundConfig.INSTANCE.extraArmorItems) {
-            try {
-                Identifier id = new Identifier(idStr);
-                RULES_BY_ITEM.put(id, rule);
-            } catch (Exception e) {
-                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Invalid extraArmorItems id in config: {}", idStr);
-            }
-        }
+        register(rules, rule, cfg.extraArmorItems);
     }
 
     // --------------------------------------------------
@@ -212,22 +194,8 @@ public class CraftingRuleRegistry {
     //  Chances per knowledge tier come from config.weaponsmithingChances
     // --------------------------------------------------
 
-    private static void registerWeaponRules() {
-        Map<Integer, CraftingKnowledgeRule.TierChance> tierChances = new HashMap<>();
-
-        KnowledgeBoundConfig.CraftingTierChances[] cfgArr =
-                KnowledgeBoundConfig.INSTANCE.weaponsmithingChances;
-
-        for (int tier = 0; tier <= 4; tier++) {
-            int idx = clamp(tier, 0, cfgArr.length - 1);
-            KnowledgeBoundConfig.CraftingTierChances c = cfgArr[idx];
-            c.normalize();
-
-            double good = c.normalChance;
-            double poor = c.poorChance;
-
-            tierChances.put(tier, new CraftingKnowledgeRule.TierChance(good, poor));
-        }
+    private static void registerWeaponRules(Map<Identifier, CraftingKnowledgeRule> rules, CompiledConfig cfg) {
+        Map<Integer, CraftingKnowledgeRule.TierChance> tierChances = tierChancesOf(cfg.weaponsmithingChances);
 
         CraftingKnowledgeRule rule = new CraftingKnowledgeRule(
                 new Identifier(KnowledgeBound.MOD_ID, "weapon_crafting"),
@@ -238,6 +206,7 @@ public class CraftingRuleRegistry {
 
         // Vanilla swords
         register(
+                rules,
                 rule,
                 new Identifier("minecraft", "wooden_sword"),
                 new Identifier("minecraft", "stone_sword"),
@@ -248,23 +217,21 @@ public class CraftingRuleRegistry {
         );
 
         // Extra weapons from config (e.g. modded swords)
-        for (String idStr : KnowledgeBoundConfig.INSTANCE.extraWeaponItems) {
-            try {
-                Identifier id = new Identifier(idStr);
-                RULES_BY_ITEM.put(id, rule);
-            } catch (Exception e) {
-                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Invalid extraWeaponItems id in config: {}", idStr);
-            }
-        }
+        register(rules, rule, cfg.extraWeaponItems);
     }
 
     // --------------------------------------------------
     //  Helpers
     // --------------------------------------------------
 
-    private static int clamp(int value, int min, int max) {
-        if (value < min) return min;
-        if (value > max) return max;
-        return value;
+    private static Map<Integer, CraftingKnowledgeRule.TierChance> tierChancesOf(CompiledConfig.CraftingChance[] chances) {
+        Map<Integer, CraftingKnowledgeRule.TierChance> tierChances = new HashMap<>();
+        for (int tier = 0; tier < chances.length; tier++) {
+            // In TierChance, first param = goodChance, second = poorChance.
+            // FailChance is implicit: 1 - (good + poor).
+            CompiledConfig.CraftingChance c = chances[tier];
+            tierChances.put(tier, new CraftingKnowledgeRule.TierChance(c.normalChance, c.poorChance));
+        }
+        return tierChances;
     }
 }
@@ -0,0 +1,109 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtTagSizeTracker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Shared knowledge store in a directory every backend can reach (e.g. a
+ * network mount): one &lt;uuid&gt;.kbs file per player holding the version
+ * followed by the gzipped record.
+ *
+ * Writes lock &lt;uuid&gt;.lock, check the stored version, then replace the
+ * file by temp file → fsync → atomic rename, so readers never need the lock.
+ * Cross-server locking is only as good as the file system's; use a local
+ * or lock-aware network file system.
+ */
+public final class DirectoryKnowledgeSyncStore implements KnowledgeSyncStore {
+
+    private static final String EXTENSION = ".kbs";
+
+    private final Path directory;
+
+    public DirectoryKnowledgeSyncStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public Versioned get(UUID uuid) throws IOException {
+        Path file = fileFor(uuid);
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            long version = in.readLong();
+            return new Versioned(NbtIo.readCompressed(in, NbtTagSizeTracker.ofUnlimitedBytes()), version);
+        }
+    }
+
+    @Override
+    public boolean compareAndSet(UUID uuid, long expectedVersion, NbtCompound record) throws IOException {
+        Path file = fileFor(uuid);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve(uuid + ".lock"),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+
+            if (storedVersion(file) != expectedVersion) {
+                return false;
+            }
+
+            // NbtIo closes the stream it writes to, so encode first, then write + fsync
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeLong(expectedVersion + 1L);
+                NbtIo.writeCompressed(record, out);
+            }
+
+            try (FileChannel channel = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /** Version in the file's first 8 bytes; 0 if there's no file. */
+    private static long storedVersion(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0L;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return new DataInputStream(in).readLong();
+        }
+    }
+
+    private Path fileFor(UUID uuid) {
+        return directory.resolve(uuid + EXTENSION);
+    }
+}
@@ -0,0 +1,145 @@
+package net.maxello.knowledgebound;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.block.Block;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.util.Set;
+
+/**
+ * Precomputed block → gather knowledge table (Forestry, Mining, Digging, Farming).
+ *
+ * Built once the block registry is frozen, indexed by raw registry id,
+ * so classifying a block break is a single array read.
+ */
+public final class GatherBlockRegistry {
+
+    /** What breaking a given block means for the gather knowledges. */
+    public static final class Entry {
+        public final KnowledgeDefinition knowledge;
+        private final double[] failChanceByTier;
+
+        public Entry(KnowledgeDefinition knowledge, double[] failChanceByTier) {
+            this.knowledge = knowledge;
+            this.failChanceByTier = failChanceByTier;
+        }
+
+        /** Chance that gathering fails at the given knowledge tier. */
+        public double failChance(int tier) {
+            return CompiledConfig.chanceForTier(failChanceByTier, tier);
+        }
+    }
+
+    // Indexed by Registries.BLOCK raw id; null = not a gather block
+    private static Entry[] byRawId = new Entry[0];
+
+    private GatherBlockRegistry() {
+    }
+
+    public static void init() {
+        // Modded blocks may register after us, so wait until the registries are frozen
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> rebuild());
+    }
+
+    /**
+     * Returns the gather entry for this block, or null if it isn't a gather block.
+     */
+    public static Entry get(Block block) {
+        Entry[] table = byRawId;
+        int rawId = Registries.BLOCK.getRawId(block);
+        if (rawId < 0 || rawId >= table.length) {
+            return null;
+        }
+        return table[rawId];
+    }
+
+    public static void rebuild() {
+        CompiledConfig cfg = CompiledConfig.get();
+
+        Entry forestry = createEntry(KnowledgeRegistry.FORESTRY_ID, cfg.forestryGatherFail);
+        Entry mining   = createEntry(KnowledgeRegistry.MINING_ID, cfg.miningGatherFail);
+        Entry digging  = createEntry(KnowledgeRegistry.DIGGING_ID, cfg.diggingGatherFail);
+        Entry farming  = createEntry(KnowledgeRegistry.FARMING_ID, cfg.farmingGatherFail);
+
+        Set<Identifier> extraForestry = cfg.extraForestryBlocks;
+        Set<Identifier> extraMining   = cfg.extraMiningBlocks;
+        Set<Identifier> extraDigging  = cfg.extraDiggingBlocks;
+        Set<Identifier> extraFarming  = cfg.extraFarmingBlocks;
+
+        Set<Block> vanillaDigging = Set.of(
+                Blocks.DIRT, Blocks.COARSE_DIRT, Blocks.ROOTED_DIRT, Blocks.GRASS_BLOCK,
+                Blocks.PODZOL, Blocks.MYCELIUM, Blocks.MUD, Blocks.MUDDY_MANGROVE_ROOTS,
+                Blocks.SAND, Blocks.RED_SAND, Blocks.GRAVEL, Blocks.CLAY,
+                Blocks.SNOW, Blocks.SNOW_BLOCK, Blocks.POWDER_SNOW,
+                Blocks.SOUL_SAND, Blocks.SOUL_SOIL
+        );
+        Set<Block> vanillaFarming = Set.of(
+                Blocks.WHEAT, Blocks.CARROTS, Blocks.POTATOES, Blocks.BEETROOTS,
+                Blocks.MELON_STEM, Blocks.PUMPKIN_STEM
+        );
+
+        Entry[] table = new Entry[Registries.BLOCK.size()];
+        int classified = 0;
+
+        for (Block block : Registries.BLOCK) {
+            int rawId = Registries.BLOCK.getRawId(block);
+            if (rawId < 0 || rawId >= table.length) continue;
+
+            Identifier blockId = Registries.BLOCK.getId(block);
+            Entry entry = null;
+
+            // Same precedence as the old if/else chain: Forestry → Mining → Digging → Farming
+            if (isForestryBlock(blockId) || extraForestry.contains(blockId)) {
+                entry = forestry;
+            } else if (isMiningBlock(blockId) || extraMining.contains(blockId)) {
+                entry = mining;
+            } else if (vanillaDigging.contains(block) || extraDigging.contains(blockId)) {
+                entry = digging;
+            } else if (vanillaFarming.contains(block) || extraFarming.contains(blockId)) {
+                entry = farming;
+            }
+
+            table[rawId] = entry;
+            if (entry != null) classified++;
+        }
+
+        byRawId = table;
+        KnowledgeBound.LOGGER.info("[KnowledgeBound] Classified {} gather blocks.", classified);
+    }
+
+    // --------------------------------------------------
+    //  Build-time helpers
+    // --------------------------------------------------
+
+    private static Entry createEntry(Identifier knowledgeId, double[] failChanceByTier) {
+        KnowledgeDefinition def = KnowledgeRegistry.get(knowledgeId);
+        return def != null ? new Entry(def, failChanceByTier) : null;
+    }
+
+    private static boolean isForestryBlock(Identifier blockId) {
+        String path = blockId.getPath();
+        return path.endsWith("_log")
+                || path.endsWith("_wood")
+                || path.endsWith("_stem")
+                || path.endsWith("_hyphae");
+    }
+
+    private static boolean isMiningBlock(Identifier blockId) {
+        String path = blockId.getPath();
+
+        boolean stoneLike =
+                path.equals("stone") ||
+                        path.equals("deepslate") ||
+                        path.equals("netherrack") ||
+                        path.equals("blackstone") ||
+                        path.equals("tuff");
+
+        boolean oreLike =
+                path.endsWith("_ore") ||
+                        path.equals("gilded_blackstone");
+
+        return stoneLike || oreLike;
+    }
+}
@@ -0,0 +1,393 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Knowledge store in an embedded H2 database (&lt;world&gt;/knowledgebound/knowledge.mv.db).
+ *
+ * One row per (player, knowledge) in an indexed table, so queries across
+ * all players (leaderboards, tier counts) are plain SQL. Snapshots queue up
+ * like in the file store and the writer commits everything queued in one
+ * transaction with batched upserts, instead of one file per player.
+ *
+ * Existing per-player files are imported until an import has completed; the
+ * "imported" marker row is committed in the same transaction as the import.
+ */
+public final class H2KnowledgeStore implements KnowledgeStore {
+
+    private static final String SCHEMA_PLAYER = """
+            CREATE TABLE IF NOT EXISTS kb_player (
+                uuid UUID PRIMARY KEY,
+                rng  BIGINT,
+                jseq BIGINT NOT NULL DEFAULT 0,
+                sv   BIGINT NOT NULL DEFAULT 0
+            )""";
+    private static final String MIGRATE_PLAYER_SYNC =
+            "ALTER TABLE kb_player ADD COLUMN IF NOT EXISTS sv BIGINT NOT NULL DEFAULT 0";
+    private static final String SCHEMA_KNOWLEDGE = """
+            CREATE TABLE IF NOT EXISTS kb_knowledge (
+                uuid        UUID         NOT NULL,
+                knowledge   VARCHAR(128) NOT NULL,
+                tier        INT          NOT NULL,
+                minutes     INT          NOT NULL,
+                last_minute BIGINT       NOT NULL,
+                PRIMARY KEY (uuid, knowledge)
+            )""";
+    private static final String SCHEMA_META = """
+            CREATE TABLE IF NOT EXISTS kb_meta (
+                name  VARCHAR(64)  PRIMARY KEY,
+                value VARCHAR(256) NOT NULL
+            )""";
+    private static final String SCHEMA_TIER_INDEX =
+            "CREATE INDEX IF NOT EXISTS kb_knowledge_tier ON kb_knowledge (knowledge, tier, minutes)";
+
+    private static final String UPSERT_PLAYER =
+            "MERGE INTO kb_player (uuid, rng, jseq, sv) KEY (uuid) VALUES (?, ?, ?, ?)";
+    private static final String UPSERT_KNOWLEDGE =
+            "MERGE INTO kb_knowledge (uuid, knowledge, tier, minutes, last_minute) KEY (uuid, knowledge) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_KNOWLEDGE =
+            "DELETE FROM kb_knowledge WHERE uuid = ? AND knowledge = ?";
+
+    private static final String MARK_IMPORTED =
+            "MERGE INTO kb_meta (name, value) KEY (name) VALUES ('imported', '1')";
+    private static final String SELECT_IMPORTED = "SELECT 1 FROM kb_meta WHERE name = 'imported'";
+    private static final String SELECT_PLAYER_IDS = "SELECT uuid FROM kb_player";
+
+    private static final String SELECT_PLAYER = "SELECT rng, jseq, sv FROM kb_player WHERE uuid = ?";
+    private static final String SELECT_KNOWLEDGE =
+            "SELECT knowledge, tier, minutes, last_minute FROM kb_knowledge WHERE uuid = ?";
+    private static final String SELECT_TOP =
+            "SELECT uuid, tier, minutes FROM kb_knowledge WHERE knowledge = ? ORDER BY tier DESC, minutes DESC LIMIT ?";
+
+    // Writer connection (writer thread only) and reader connection (guarded by itself)
+    private final Connection writeConnection;
+    private final Connection readConnection;
+    private final ExecutorService writer;
+
+    // Latest not-yet-written snapshot per player; never modified after being put here
+    private final Map<UUID, NbtCompound> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    private H2KnowledgeStore(Connection writeConnection, Connection readConnection) {
+        this.writeConnection = writeConnection;
+        this.readConnection = readConnection;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KnowledgeBound-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open (or create) the database, importing {@code legacyFiles} if no import has completed yet.
+     */
+    public static H2KnowledgeStore open(Path databaseFile, KnowledgeFileStore legacyFiles) throws SQLException {
+        String url = "jdbc:h2:file:" + databaseFile.toAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE";
+        // Connect through the driver directly; DriverManager can't see drivers inside a mod jar
+        org.h2.Driver driver = new org.h2.Driver();
+
+        Connection write = driver.connect(url, new Properties());
+        Connection read = null;
+        try {
+            read = driver.connect(url, new Properties());
+            write.setAutoCommit(false);
+
+            boolean imported;
+            try (Statement statement = write.createStatement()) {
+                statement.execute(SCHEMA_META);
+                statement.execute(SCHEMA_PLAYER);
+                statement.execute(MIGRATE_PLAYER_SYNC);
+                statement.execute(SCHEMA_KNOWLEDGE);
+                statement.execute(SCHEMA_TIER_INDEX);
+                try (ResultSet marker = statement.executeQuery(SELECT_IMPORTED)) {
+                    imported = marker.next();
+                }
+            }
+            write.commit();
+
+            H2KnowledgeStore store = new H2KnowledgeStore(write, read);
+            if (!imported && legacyFiles != null) {
+                store.importFrom(legacyFiles);
+            }
+            return store;
+        } catch (SQLException | RuntimeException e) {
+            write.close();
+            if (read != null) read.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Import every player file, then set the marker in the same transaction.
+     * Players already in the database (an earlier start got that far before
+     * the marker existed) keep their newer rows.
+     */
+    private void importFrom(KnowledgeFileStore files) throws SQLException {
+        Set<UUID> existing = new HashSet<>();
+        try (Statement statement = writeConnection.createStatement();
+             ResultSet rows = statement.executeQuery(SELECT_PLAYER_IDS)) {
+            while (rows.next()) {
+                existing.add(rows.getObject(1, UUID.class));
+            }
+        }
+
+        Map<UUID, NbtCompound> records = new HashMap<>();
+        files.forEachRecord((uuid, record) -> {
+            if (!existing.contains(uuid)) records.put(uuid, record);
+        });
+
+        writeBatch(records, true);
+        KnowledgeBound.LOGGER.info("[KnowledgeBound] Imported knowledge of {} players into the database.", records.size());
+    }
+
+    // --------------------------------------------------
+    //  KnowledgeStore
+    // --------------------------------------------------
+
+    @Override
+    public NbtCompound load(UUID uuid) {
+        NbtCompound queued = pending.get(uuid);
+        if (queued != null) {
+            return queued.copy();
+        }
+
+        PlayerKnowledgeData data = new PlayerKnowledgeData();
+        boolean found = false;
+
+        synchronized (readConnection) {
+            try {
+                try (PreparedStatement statement = readConnection.prepareStatement(SELECT_PLAYER)) {
+                    statement.setObject(1, uuid);
+                    try (ResultSet row = statement.executeQuery()) {
+                        if (row.next()) {
+                            found = true;
+                            long rng = row.getLong(1);
+                            if (!row.wasNull()) data.setRngState(rng);
+                            data.setJournalSeq(row.getLong(2));
+                            data.setSyncVersion(row.getLong(3));
+                        }
+                    }
+                }
+
+                try (PreparedStatement statement = readConnection.prepareStatement(SELECT_KNOWLEDGE)) {
+                    statement.setObject(1, uuid);
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            found = true;
+                            KnowledgeDefinition def = KnowledgeRegistry.byIdString(rows.getString(1));
+                            if (def == null) continue; // knowledge no longer exists
+
+                            int ordinal = def.getOrdinal();
+                            data.setTier(ordinal, rows.getInt(2));
+                            data.setMinutes(ordinal, rows.getInt(3));
+                            data.setLastXpMinuteIndex(ordinal, rows.getLong(4));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to load knowledge of {} from the database.", uuid, e);
+                return null;
+            }
+        }
+
+        return found ? KnowledgeNbtCodec.encode(data) : null;
+    }
+
+    @Override
+    public void save(UUID uuid, NbtCompound snapshot) {
+        pending.put(uuid, snapshot);
+        scheduleDrain();
+    }
+
+    @Override
+    public void saveAll(Map<UUID, NbtCompound> snapshots) {
+        pending.putAll(snapshots);
+        scheduleDrain();
+    }
+
+    @Override
+    public List<Ranked> top(KnowledgeDefinition def, int limit) {
+        List<Ranked> ranked = new ArrayList<>();
+        synchronized (readConnection) {
+            try (PreparedStatement statement = readConnection.prepareStatement(SELECT_TOP)) {
+                statement.setString(1, def.getIdString());
+                statement.setInt(2, limit);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        ranked.add(new Ranked(rows.getObject(1, UUID.class), rows.getInt(2), rows.getInt(3)));
+                    }
+                }
+            } catch (SQLException e) {
+                KnowledgeBound.LOGGER.error("[KnowledgeBound] Knowledge leaderboard query failed.", e);
+            }
+        }
+        return ranked;
+    }
+
+    @Override
+    public void whenFlushed(Runnable action) {
+        writer.execute(() -> {
+            drain();
+            if (pending.isEmpty()) {
+                action.run();
+            }
+        });
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Knowledge writer did not finish in time.");
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything still queued (e.g. after a failed write) gets one last synchronous try
+        drain();
+
+        try {
+            synchronized (readConnection) {
+                readConnection.close();
+            }
+            writeConnection.close();
+        } catch (SQLException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to close the knowledge database.", e);
+        }
+    }
+
+    // --------------------------------------------------
+    //  Writer (group commit)
+    // --------------------------------------------------
+
+    private void scheduleDrain() {
+        // One drain picks up everything queued until it runs
+        if (drainQueued.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        drainQueued.set(false);
+        if (pending.isEmpty()) return;
+
+        Map<UUID, NbtCompound> batch = new HashMap<>(pending);
+
+        KnowledgeJfrEvents.PersistenceEvent event = new KnowledgeJfrEvents.PersistenceEvent();
+        event.begin();
+        boolean written = false;
+
+        long start = System.nanoTime();
+        try {
+            writeBatch(batch, false);
+            // Only drop what wasn't replaced by a newer snapshot in the meantime
+            for (Map.Entry<UUID, NbtCompound> entry : batch.entrySet()) {
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+            written = true;
+        } catch (SQLException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to write knowledge of {} players to the database.",
+                    batch.size(), e);
+        } finally {
+            KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.STORE_WRITE, start);
+
+            if (event.shouldCommit()) {
+                event.records = batch.size();
+                event.operation = KnowledgeJfrEvents.PersistenceEvent.WRITE;
+                event.succeeded = written;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Write all records in one transaction (with the import marker if
+     * {@code markImported}); rolled back as a whole on failure.
+     */
+    private void writeBatch(Map<UUID, NbtCompound> records, boolean markImported) throws SQLException {
+        PlayerKnowledgeData data = new PlayerKnowledgeData();
+
+        try (PreparedStatement upsertPlayer = writeConnection.prepareStatement(UPSERT_PLAYER);
+             PreparedStatement upsertKnowledge = writeConnection.prepareStatement(UPSERT_KNOWLEDGE);
+             PreparedStatement deleteKnowledge = writeConnection.prepareStatement(DELETE_KNOWLEDGE)) {
+
+            for (Map.Entry<UUID, NbtCompound> entry : records.entrySet()) {
+                UUID uuid = entry.getKey();
+                KnowledgeNbtCodec.decode(entry.getValue(), data);
+
+                upsertPlayer.setObject(1, uuid);
+                if (data.isRngSeeded()) {
+                    upsertPlayer.setLong(2, data.getRngState());
+                } else {
+                    upsertPlayer.setNull(2, Types.BIGINT);
+                }
+                upsertPlayer.setLong(3, data.getJournalSeq());
+                upsertPlayer.setLong(4, data.getSyncVersion());
+                upsertPlayer.addBatch();
+
+                for (int ordinal = 0; ordinal < data.size(); ordinal++) {
+                    String knowledge = KnowledgeRegistry.byOrdinal(ordinal).getIdString();
+                    if (data.isDefault(ordinal)) {
+                        // No row = default; also clears knowledge reset by a rollback
+                        deleteKnowledge.setObject(1, uuid);
+                        deleteKnowledge.setString(2, knowledge);
+                        deleteKnowledge.addBatch();
+                        continue;
+                    }
+                    upsertKnowledge.setObject(1, uuid);
+                    upsertKnowledge.setString(2, knowledge);
+                    upsertKnowledge.setInt(3, data.getTier(ordinal));
+                    upsertKnowledge.setInt(4, data.getMinutes(ordinal));
+                    upsertKnowledge.setLong(5, data.getLastXpMinuteIndex(ordinal));
+                    upsertKnowledge.addBatch();
+                }
+            }
+
+            upsertPlayer.executeBatch();
+            upsertKnowledge.executeBatch();
+            deleteKnowledge.executeBatch();
+            if (markImported) {
+                try (Statement statement = writeConnection.createStatement()) {
+                    statement.executeUpdate(MARK_IMPORTED);
+                }
+            }
+            writeConnection.commit();
+        } catch (SQLException | RuntimeException e) {
+            try {
+                writeConnection.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        }
+    }
+}
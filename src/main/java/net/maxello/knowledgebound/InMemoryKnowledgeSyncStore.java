@@ -0,0 +1,42 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process stand-in for a shared knowledge store: records live in a map
+ * and are lost on shutdown. Meant for testing sync on a single server or
+ * with several servers sharing one instance, not for production.
+ */
+public final class InMemoryKnowledgeSyncStore implements KnowledgeSyncStore {
+
+    private final Map<UUID, Versioned> records = new ConcurrentHashMap<>();
+
+    @Override
+    public Versioned get(UUID uuid) {
+        Versioned current = records.get(uuid);
+        return current != null ? new Versioned(current.record.copy(), current.version) : null;
+    }
+
+    @Override
+    public boolean compareAndSet(UUID uuid, long expectedVersion, NbtCompound record) {
+        boolean[] stored = new boolean[1];
+        records.compute(uuid, (key, current) -> {
+            long version = current != null ? current.version : 0L;
+            if (version != expectedVersion) {
+                return current;
+            }
+            stored[0] = true;
+            return new Versioned(record.copy(), version + 1L);
+        });
+        return stored[0];
+    }
+
+    @Override
+    public void close() {
+        records.clear();
+    }
+}
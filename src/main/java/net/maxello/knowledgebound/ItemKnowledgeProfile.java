@@ -0,0 +1,46 @@
+package net.maxello.knowledgebound;
+
+/**
+ * Everything KnowledgeBound needs to know about a single Item,
+ * precomputed once by {@link ItemProfileRegistry}.
+ */
+public final class ItemKnowledgeProfile {
+
+    /** Profile for items KnowledgeBound doesn't care about. */
+    public static final ItemKnowledgeProfile NONE = new ItemKnowledgeProfile(
+            KnowledgeDefinition.ToolTier.UNKNOWN, false, false, false, false, null, -1
+    );
+
+    /** Tier this item counts as when used for gathering / combat XP. */
+    public final KnowledgeDefinition.ToolTier toolTier;
+
+    /** Counts for Melee Combat XP when used to hit something. */
+    public final boolean meleeWeapon;
+
+    // Smithing categories: which smithing knowledge gets XP for crafting this item
+    public final boolean tool;
+    public final boolean weapon;
+    public final boolean armor;
+
+    /** Crafting quality rule for this item, or null if crafting it is unaffected. */
+    public final CraftingKnowledgeRule craftingRule;
+
+    /** Combat tier required to wear this item, or -1 if unrestricted. */
+    public final int requiredArmorTier;
+
+    public ItemKnowledgeProfile(KnowledgeDefinition.ToolTier toolTier,
+                                boolean meleeWeapon,
+                                boolean tool,
+                                boolean weapon,
+                                boolean armor,
+                                CraftingKnowledgeRule craftingRule,
+                                int requiredArmorTier) {
+        this.toolTier = toolTier;
+        this.meleeWeapon = meleeWeapon;
+        this.tool = tool;
+        this.weapon = weapon;
+        this.armor = armor;
+        this.craftingRule = craftingRule;
+        this.requiredArmorTier = requiredArmorTier;
+    }
+}
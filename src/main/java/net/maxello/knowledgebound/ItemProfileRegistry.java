@@ -0,0 +1,215 @@
+package net.maxello.knowledgebound;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.item.ArmorItem;
+import net.minecraft.item.ArmorMaterial;
+import net.minecraft.item.ArmorMaterials;
+import net.minecraft.item.BowItem;
+import net.minecraft.item.CrossbowItem;
+import net.minecraft.item.FishingRodItem;
+import net.minecraft.item.Item;
+import net.minecraft.item.MiningToolItem;
+import net.minecraft.item.RangedWeaponItem;
+import net.minecraft.item.SwordItem;
+import net.minecraft.item.ToolItem;
+import net.minecraft.item.ToolMaterial;
+import net.minecraft.item.ToolMaterials;
+import net.minecraft.item.TridentItem;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.util.Set;
+
+/**
+ * Precomputed Item → {@link ItemKnowledgeProfile} table, indexed by raw registry id.
+ *
+ * Items are classified by class and material (ToolMaterial / ArmorMaterial),
+ * plus the extraToolItems / extraWeaponItems / extraArmorItems config lists.
+ */
+public final class ItemProfileRegistry {
+
+    // Indexed by Registries.ITEM raw id; null = ItemKnowledgeProfile.NONE
+    private static ItemKnowledgeProfile[] byRawId = new ItemKnowledgeProfile[0];
+
+    private ItemProfileRegistry() {
+    }
+
+    public static void init() {
+        // Modded items may register after us, so wait until the registries are frozen
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> rebuild());
+    }
+
+    /**
+     * Returns the profile for this item, never null.
+     */
+    public static ItemKnowledgeProfile get(Item item) {
+        ItemKnowledgeProfile[] table = byRawId;
+        int rawId = Registries.ITEM.getRawId(item);
+        if (rawId < 0 || rawId >= table.length) {
+            return ItemKnowledgeProfile.NONE;
+        }
+        ItemKnowledgeProfile profile = table[rawId];
+        return profile != null ? profile : ItemKnowledgeProfile.NONE;
+    }
+
+    public static void rebuild() {
+        CompiledConfig cfg = CompiledConfig.get();
+
+        Set<Identifier> extraTools   = cfg.extraToolItems;
+        Set<Identifier> extraWeapons = cfg.extraWeaponItems;
+        Set<Identifier> extraArmor   = cfg.extraArmorItems;
+
+        ItemKnowledgeProfile[] table = new ItemKnowledgeProfile[Registries.ITEM.size()];
+        int profiled = 0;
+
+        for (Item item : Registries.ITEM) {
+            int rawId = Registries.ITEM.getRawId(item);
+            if (rawId < 0 || rawId >= table.length) continue;
+
+            Identifier itemId = Registries.ITEM.getId(item);
+
+            boolean extraTool   = extraTools.contains(itemId);
+            boolean extraWeapon = extraWeapons.contains(itemId);
+            boolean extraArmor  = extraArmor.contains(itemId);
+
+            KnowledgeDefinition.ToolTier toolTier = toolTierOf(item, itemId, extraTool || extraWeapon || extraArmor);
+
+            boolean meleeWeapon = item instanceof SwordItem
+                    || (extraWeapon && !(item instanceof RangedWeaponItem));
+            boolean tool = item instanceof MiningToolItem || extraTool;
+            boolean weapon = item instanceof SwordItem
+                    || item instanceof RangedWeaponItem
+                    || item instanceof TridentItem
+                    || extraWeapon;
+            boolean armor = item instanceof ArmorItem || extraArmor;
+
+            CraftingKnowledgeRule rule = CraftingRuleRegistry.getForItem(itemId);
+            int requiredArmorTier = (item instanceof ArmorItem armorItem)
+                    ? requiredArmorTierOf(armorItem, itemId, cfg)
+                    : -1;
+
+            if (toolTier == KnowledgeDefinition.ToolTier.UNKNOWN
+                    && !meleeWeapon && !tool && !weapon && !armor
+                    && rule == null && requiredArmorTier < 0) {
+                continue; // leave null → NONE
+            }
+
+            table[rawId] = new ItemKnowledgeProfile(
+                    toolTier, meleeWeapon, tool, weapon, armor, rule, requiredArmorTier
+            );
+            profiled++;
+        }
+
+        byRawId = table;
+        KnowledgeBound.LOGGER.info("[KnowledgeBound] Built knowledge profiles for {} items.", profiled);
+    }
+
+    // --------------------------------------------------
+    //  Tool tier classification
+    // --------------------------------------------------
+
+    private static KnowledgeDefinition.ToolTier toolTierOf(Item item, Identifier itemId, boolean listedInConfig) {
+        if (item instanceof ToolItem toolItem) {
+            KnowledgeDefinition.ToolTier tier = tierOfToolMaterial(toolItem.getMaterial());
+            if (tier != null) return tier;
+            // Modded material → fall back to the item's name
+            return tierFromPath(itemId.getPath());
+        }
+
+        if (item instanceof ArmorItem armorItem) {
+            KnowledgeDefinition.ToolTier tier = tierOfArmorMaterial(armorItem.getMaterial());
+            if (tier != null) return tier;
+            return tierFromPath(itemId.getPath());
+        }
+
+        if (item instanceof CrossbowItem)   return KnowledgeDefinition.ToolTier.CROSSBOW;
+        if (item instanceof BowItem)        return KnowledgeDefinition.ToolTier.BOW;
+        if (item instanceof FishingRodItem) return KnowledgeDefinition.ToolTier.FISHING_ROD;
+
+        // Modded items that don't extend the vanilla classes but were listed in the config
+        if (listedInConfig) {
+            return tierFromPath(itemId.getPath());
+        }
+
+        return KnowledgeDefinition.ToolTier.UNKNOWN;
+    }
+
+    /** Vanilla tool materials; null if the material isn't a vanilla one. */
+    private static KnowledgeDefinition.ToolTier tierOfToolMaterial(ToolMaterial mat) {
+        if (mat == ToolMaterials.WOOD)    return KnowledgeDefinition.ToolTier.WOOD;
+        if (mat == ToolMaterials.STONE)   return KnowledgeDefinition.ToolTier.STONE;
+        if (mat == ToolMaterials.IRON)    return KnowledgeDefinition.ToolTier.IRON;
+        if (mat == ToolMaterials.DIAMOND) return KnowledgeDefinition.ToolTier.DIAMOND;
+        // Gold and netherite aren't part of any tier progression
+        if (mat == ToolMaterials.GOLD || mat == ToolMaterials.NETHERITE) {
+            return KnowledgeDefinition.ToolTier.UNKNOWN;
+        }
+        return null;
+    }
+
+    /** Vanilla armor materials; null if the material isn't a vanilla one. */
+    private static KnowledgeDefinition.ToolTier tierOfArmorMaterial(ArmorMaterial mat) {
+        if (mat == ArmorMaterials.LEATHER) return KnowledgeDefinition.ToolTier.LEATHER;
+        if (mat == ArmorMaterials.CHAIN)   return KnowledgeDefinition.ToolTier.CHAINMAIL;
+        if (mat == ArmorMaterials.IRON)    return KnowledgeDefinition.ToolTier.IRON;
+        if (mat == ArmorMaterials.DIAMOND) return KnowledgeDefinition.ToolTier.DIAMOND;
+        if (mat == ArmorMaterials.GOLD
+                || mat == ArmorMaterials.NETHERITE
+                || mat == ArmorMaterials.TURTLE) {
+            return KnowledgeDefinition.ToolTier.UNKNOWN;
+        }
+        return null;
+    }
+
+    /** Name-based fallback for modded materials, e.g. "modid:copper_pickaxe". */
+    private static KnowledgeDefinition.ToolTier tierFromPath(String path) {
+        if (path.startsWith("wooden_"))    return KnowledgeDefinition.ToolTier.WOOD;
+        if (path.startsWith("stone_"))     return KnowledgeDefinition.ToolTier.STONE;
+        if (path.startsWith("copper_"))    return KnowledgeDefinition.ToolTier.COPPER;
+        if (path.startsWith("iron_"))      return KnowledgeDefinition.ToolTier.IRON;
+        if (path.startsWith("diamond_"))   return KnowledgeDefinition.ToolTier.DIAMOND;
+        if (path.startsWith("leather_"))   return KnowledgeDefinition.ToolTier.LEATHER;
+        if (path.startsWith("chainmail_")) return KnowledgeDefinition.ToolTier.CHAINMAIL;
+        if (path.endsWith("crossbow"))     return KnowledgeDefinition.ToolTier.CROSSBOW;
+        if (path.endsWith("bow"))          return KnowledgeDefinition.ToolTier.BOW;
+        if (path.endsWith("fishing_rod"))  return KnowledgeDefinition.ToolTier.FISHING_ROD;
+        return KnowledgeDefinition.ToolTier.UNKNOWN;
+    }
+
+    // --------------------------------------------------
+    //  Armor requirements
+    // --------------------------------------------------
+
+    /**
+     * Determine required combat tier for this armor, using config first, then vanilla material mapping.
+     */
+    private static int requiredArmorTierOf(ArmorItem armorItem,
+                                           Identifier itemId,
+                                           CompiledConfig cfg) {
+        // 1) Per-item override from config.extraItemTiers
+        Integer override = cfg.armorItemTiers.get(itemId);
+        if (override != null) {
+            return override;
+        }
+
+        // 2) Fallback: use material-based defaults (also configurable)
+        ArmorMaterial mat = armorItem.getMaterial();
+
+        if (mat == ArmorMaterials.LEATHER) {
+            return cfg.leatherTier;
+        } else if (mat == ArmorMaterials.CHAIN) {
+            return cfg.chainTier;
+        } else if (mat == ArmorMaterials.IRON) {
+            return cfg.ironTier;
+        } else if (mat == ArmorMaterials.GOLD) {
+            return cfg.goldTier;
+        } else if (mat == ArmorMaterials.DIAMOND) {
+            return cfg.diamondTier;
+        } else if (mat == ArmorMaterials.NETHERITE) {
+            return cfg.netheriteTier;
+        }
+
+        // 3) Unknown / modded material with no override: unrestricted by default
+        return -1;
+    }
+}
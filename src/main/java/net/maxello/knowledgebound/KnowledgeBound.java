@@ -17,11 +17,16 @@ public class KnowledgeBound implements ModInitializer {
         KnowledgeBoundConfig.load();
 
         KnowledgeRegistry.init();
+        KnowledgeMetrics.init();
         CraftingRuleRegistry.init();
+        GatherBlockRegistry.init();
+        ItemProfileRegistry.init();
         PlayerKnowledgeManager.init();
+        KnowledgeServerState.init();
         KnowledgeEvents.init();
         KnowledgeCommands.init();
         ArmorRestrictionHandler.init();
+        KnowledgeMetricsExporter.init();
 
     }
 }
@@ -14,6 +14,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Gson-shaped config file. Only read while compiling a {@link CompiledConfig};
+ * runtime code reads {@link CompiledConfig#get()} instead.
+ */
 public class KnowledgeBoundConfig {
 
     // Pretty JSON, but without HTML escaping so we don't get \u003d etc.
@@ -99,17 +103,6 @@ public class KnowledgeBoundConfig {
             this.tier3 = t3;
             this.tier4 = t4;
         }
-
-        public double getForTier(int tier) {
-            int clamped = Math.max(0, Math.min(tier, 4));
-            return switch (clamped) {
-                case 0 -> tier0;
-                case 1 -> tier1;
-                case 2 -> tier2;
-                case 3 -> tier3;
-                default -> tier4;
-            };
-        }
     }
 
     // --------------------------------------------------
@@ -159,23 +152,6 @@ public class KnowledgeBoundConfig {
             this.poorChance = poor;
             this.normalChance = normal;
         }
-
-        /**
-         * Normalize so fail+poor+normal == 1.0.
-         * Called before using the chances, so you don't have to be perfect.
-         */
-        public void normalize() {
-            double sum = failChance + poorChance + normalChance;
-            if (sum <= 0.0) {
-                failChance = 0.0;
-                poorChance = 0.0;
-                normalChance = 1.0;
-            } else {
-                failChance   /= sum;
-                poorChance   /= sum;
-                normalChance /= sum;
-            }
-        }
     }
 
     private static CraftingTierChances[] defaultToolsmithing() {
@@ -282,6 +258,78 @@ public class KnowledgeBoundConfig {
     /** Extra item IDs that should use the weaponsmithing rule. */
     public List<String> extraWeaponItems = new ArrayList<>();
 
+    // --------------------------------------------------
+    // Server / storage
+    // --------------------------------------------------
+
+    public List<String> _comment_storage = List.of(
+            "Server-side storage settings:",
+            "- knowledgeStore: where player knowledge is kept. \"file\" = one file per player in",
+            "  <world>/knowledgebound/players; \"h2\" = embedded database <world>/knowledgebound/knowledge.mv.db",
+            "  (existing player files are imported on first use); \"mmap\" = memory-mapped slot file",
+            "  <world>/knowledgebound/knowledge.slots for cheap offline reads (also imports player files).",
+            "  Changes need a server restart.",
+            "- recentPlayerCacheSize: how many recently disconnected players to keep in memory",
+            "  so rejoins and offline rollbacks skip the knowledge store. 0 disables the cache.",
+            "- knowledgeSaveIntervalSeconds: how often online players' knowledge is saved",
+            "  to <world>/knowledgebound/players, on top of vanilla saves. 0 = only with vanilla saves.",
+            "- journalEnabled: append every knowledge change to <world>/knowledgebound/journal so",
+            "  a crash between saves loses at most journalFlushIntervalMillis of progress.",
+            "  Also needed for /kb rollback. Changes need a server restart.",
+            "- journalSnapshotIntervalMinutes: how often the journal is compacted into a snapshot.",
+            "- journalRetentionHours: how far back /kb rollback can go.",
+            "- knowledgeSync: share knowledge between servers behind a proxy. \"off\", \"directory\"",
+            "  (records in knowledgeSyncDirectory, a folder every server can reach) or \"memory\"",
+            "  (in-process, for testing). Changes need a server restart.",
+            "- knowledgeSyncIntervalSeconds: how often changed knowledge is published; players",
+            "  leaving are published right away."
+    );
+
+    /** "file", "h2" or "mmap". */
+    public String knowledgeStore = "file";
+
+    /** Max number of recently departed players whose knowledge stays cached. */
+    public int recentPlayerCacheSize = 64;
+
+    /** Seconds between background knowledge saves of online players (0 = off). */
+    public int knowledgeSaveIntervalSeconds = 60;
+
+    /** Write-ahead journal of knowledge changes (crash recovery, /kb rollback). */
+    public boolean journalEnabled = true;
+
+    /** Milliseconds between journal group commits (fsync). */
+    public int journalFlushIntervalMillis = 200;
+
+    /** Minutes between journal snapshots. */
+    public int journalSnapshotIntervalMinutes = 30;
+
+    /** Hours of journal history kept for /kb rollback. */
+    public int journalRetentionHours = 48;
+
+    /** "off", "directory" or "memory". */
+    public String knowledgeSync = "off";
+
+    /** Shared folder for knowledgeSync = "directory". */
+    public String knowledgeSyncDirectory = "";
+
+    /** Seconds between publishing changed knowledge to the shared store. */
+    public int knowledgeSyncIntervalSeconds = 30;
+
+    // --------------------------------------------------
+    // Monitoring
+    // --------------------------------------------------
+
+    public List<String> _comment_metrics = List.of(
+            "Prometheus metrics endpoint (http://<metricsBindAddress>:<metricsPort>/metrics).",
+            "metricsPort = 0 disables it. Changes need a server restart, /kb reload doesn't rebind."
+    );
+
+    /** Port for the Prometheus endpoint (0 = off). */
+    public int metricsPort = 0;
+
+    /** Address the Prometheus endpoint binds to; keep it local unless you firewall it. */
+    public String metricsBindAddress = "127.0.0.1";
+
     // --------------------------------------------------
     // Load / save
     // --------------------------------------------------
@@ -291,11 +339,12 @@ public class KnowledgeBoundConfig {
         Path path = configDir.resolve("knowledgebound.json");
 
         if (Files.exists(path)) {
-            try (Reader reader = Files.newBufferedReader(path)) {
-                INSTANCE = GSON.fromJson(reader, KnowledgeBoundConfig.class);
+            KnowledgeBoundConfig loaded = read(path);
+            if (loaded != null) {
+                INSTANCE = loaded;
                 KnowledgeBound.LOGGER.info("[KnowledgeBound] Loaded config from {}", path);
-            } catch (IOException e) {
-                KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to load config, using defaults.", e);
+            } else {
+                KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to load config, using defaults.");
             }
         } else {
             // Create default config file
@@ -309,5 +358,46 @@ public class KnowledgeBoundConfig {
                 KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to write default config.", e);
             }
         }
+
+        CompiledConfig.set(CompiledConfig.compile(INSTANCE));
+    }
+
+    /**
+     * Re-read the config file for /kb reload. On success the new values are
+     * compiled and swapped in; on failure the current config stays active.
+     *
+     * @return true if the file was read and applied
+     */
+    public static boolean reload() {
+        Path path = FabricLoader.getInstance().getConfigDir().resolve("knowledgebound.json");
+        if (!Files.exists(path)) {
+            KnowledgeBound.LOGGER.warn("[KnowledgeBound] No config at {}, nothing to reload.", path);
+            return false;
+        }
+
+        KnowledgeBoundConfig loaded = read(path);
+        if (loaded == null) {
+            return false;
+        }
+
+        CompiledConfig compiled = CompiledConfig.compile(loaded);
+        INSTANCE = loaded;
+        CompiledConfig.set(compiled);
+        KnowledgeBound.LOGGER.info("[KnowledgeBound] Reloaded config from {}", path);
+        return true;
+    }
+
+    private static KnowledgeBoundConfig read(Path path) {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            KnowledgeBoundConfig loaded = GSON.fromJson(reader, KnowledgeBoundConfig.class);
+            if (loaded == null) {
+                KnowledgeBound.LOGGER.error("[KnowledgeBound] Config file {} is empty.", path);
+            }
+            return loaded;
+        } catch (IOException | RuntimeException e) {
+            // RuntimeException covers Gson's JsonParseException for malformed files
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to read config {}", path, e);
+            return null;
+        }
     }
 }
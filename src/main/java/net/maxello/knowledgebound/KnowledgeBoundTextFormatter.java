@@ -5,11 +5,63 @@ import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 import net.minecraft.util.Identifier;
 
+import java.util.List;
+
+/**
+ * Player-facing knowledge messages.
+ *
+ * Every message is built once per knowledge (and per tier) when the
+ * registry is (re)built and then shared, so sending one allocates nothing
+ * beyond the packet. Messages are translatable (assets/knowledgebound/lang)
+ * with English fallbacks for clients that don't have the mod installed.
+ * The shared Text instances must never be modified.
+ */
 public final class KnowledgeBoundTextFormatter {
 
+    /** Per-knowledge messages, indexed by ordinal. */
+    private static final class KnowledgeTexts {
+        final Text learningTick;
+        final Text gatheringFail;
+        // Index = tier reached; index 0 unused
+        final Text[] levelUp;
+
+        KnowledgeTexts(Text learningTick, Text gatheringFail, Text[] levelUp) {
+            this.learningTick = learningTick;
+            this.gatheringFail = gatheringFail;
+            this.levelUp = levelUp;
+        }
+    }
+
+    // Armor tier names as used in the armor restriction message
+    private static final String[] ARMOR_TIER_NAMES = {
+            "Leather", "Chainmail", "Iron", "Gold", "Diamond", "Netherite"
+    };
+
+    private static final Text CRAFTING_FAIL_SMITHING = Text.translatableWithFallback(
+            "message.knowledgebound.crafting_fail",
+            "Your smithing attempt failed to yield any items.")
+            .formatted(Formatting.RED);
+
+    private static final Text CRAFTING_POOR_SMITHING = craftingQuality("poor", "poor");
+
+    private static final Text[] ARMOR_REQUIRED = buildArmorRequired();
+
+    private static volatile KnowledgeTexts[] byOrdinal = new KnowledgeTexts[0];
+
     private KnowledgeBoundTextFormatter() {
     }
 
+    /**
+     * Build the per-knowledge messages; called whenever the knowledge registry is rebuilt.
+     */
+    static void rebuild(List<KnowledgeDefinition> definitions) {
+        KnowledgeTexts[] texts = new KnowledgeTexts[definitions.size()];
+        for (KnowledgeDefinition def : definitions) {
+            texts[def.getOrdinal()] = buildTexts(def);
+        }
+        byOrdinal = texts;
+    }
+
     // Turn "toolsmithing" → "Toolsmithing", "weapon_smith" → "Weapon Smith"
     private static String displayName(Identifier knowledgeId) {
         String path = knowledgeId.getPath().replace('_', ' ');
@@ -27,52 +79,117 @@ public final class KnowledgeBoundTextFormatter {
         return sb.toString();
     }
 
+    private static KnowledgeTexts buildTexts(KnowledgeDefinition def) {
+        Identifier id = def.getId();
+        String fallbackName = displayName(id);
+        Text name = Text.translatableWithFallback(
+                "knowledge." + id.getNamespace() + "." + id.getPath(),
+                fallbackName);
+
+        Text learningTick = Text.translatableWithFallback(
+                "message.knowledgebound.learning",
+                "You're learning " + fallbackName + "!",
+                name)
+                .formatted(Formatting.GREEN);
+
+        Text gatheringFail = Text.translatableWithFallback(
+                "message.knowledgebound.gathering_fail",
+                "Your " + fallbackName + " attempt failed to yield any resources.",
+                name)
+                .formatted(Formatting.RED);
+
+        Text[] levelUp = new Text[def.getMaxTier() + 1];
+        for (int tier = 1; tier <= def.getMaxTier(); tier++) {
+            levelUp[tier] = Text.translatableWithFallback(
+                    "message.knowledgebound.level_up",
+                    "Your " + fallbackName + " knowledge increased to Tier " + tier + "!",
+                    name, tier)
+                    .formatted(Formatting.GOLD);
+        }
+
+        return new KnowledgeTexts(learningTick, gatheringFail, levelUp);
+    }
+
+    private static KnowledgeTexts textsFor(KnowledgeDefinition def) {
+        KnowledgeTexts[] texts = byOrdinal;
+        int ordinal = def.getOrdinal();
+        return ordinal < texts.length && texts[ordinal] != null ? texts[ordinal] : buildTexts(def);
+    }
+
     // --------------------------------------------------
     //  XP / Level messages
     // --------------------------------------------------
 
     /** Green "You’re learning <Knowledge>!" line. */
-    public static Text learningTick(Identifier knowledgeId) {
-        String name = displayName(knowledgeId);
-        return Text.literal("You're learning " + name + "!")
-                .formatted(Formatting.GREEN);
+    public static Text learningTick(KnowledgeDefinition def) {
+        return textsFor(def).learningTick;
     }
 
     /** Gold level-up line. */
-    public static Text levelUp(Identifier knowledgeId, int tier) {
-        String name = displayName(knowledgeId);
-        return Text.literal("Your " + name + " knowledge increased to Tier " + tier + "!")
-                .formatted(Formatting.GOLD);
+    public static Text levelUp(KnowledgeDefinition def, int tier) {
+        Text[] levelUp = textsFor(def).levelUp;
+        int clamped = Math.max(1, Math.min(tier, levelUp.length - 1));
+        return levelUp[clamped];
     }
 
     // --------------------------------------------------
     //  Crafting result messages (smithing-style)
     // --------------------------------------------------
-    /** Cyan text with purple "<quality>" word for smithing results. */
-    public static Text craftingQualitySmithing(String quality) {
-        MutableText base = Text.literal("You crafted a ")
-                .formatted(Formatting.AQUA);
 
-        MutableText qualityWord = Text.literal(quality + " ")
-                .formatted(Formatting.LIGHT_PURPLE, Formatting.BOLD);
-
-        MutableText tail = Text.literal("quality item. Improve your smithing knowledge for better quality.")
-                .formatted(Formatting.AQUA);
-
-        return base.append(qualityWord).append(tail);
+    /** Cyan text with purple "poor" word for smithing results. */
+    public static Text craftingPoorSmithing() {
+        return CRAFTING_POOR_SMITHING;
     }
 
     /** Red failure message */
     public static Text craftingFailSmithing() {
-        return Text.literal("Your smithing attempt failed to yield any items.")
-                .formatted(Formatting.RED);
+        return CRAFTING_FAIL_SMITHING;
     }
+
     /** Red message for gather failures: Forestry, Mining, Digging, Farming. */
-    public static Text gatheringFail(Identifier knowledgeId) {
-        String name = displayName(knowledgeId);
-        return Text.literal("Your " + name + " attempt failed to yield any resources.")
-                .formatted(Formatting.RED);
+    public static Text gatheringFail(KnowledgeDefinition def) {
+        return textsFor(def).gatheringFail;
+    }
+
+    // --------------------------------------------------
+    //  Armor restriction
+    // --------------------------------------------------
+
+    /** Red "You need <tier> Combat Knowledge to wear this armor!" line. */
+    public static Text armorRequired(int requiredTier) {
+        int index = requiredTier >= 0 && requiredTier < ARMOR_TIER_NAMES.length
+                ? requiredTier
+                : ARMOR_TIER_NAMES.length; // "higher"
+        return ARMOR_REQUIRED[index];
     }
 
+    private static Text craftingQuality(String qualityKey, String qualityFallback) {
+        MutableText qualityWord = Text.translatableWithFallback(
+                "quality.knowledgebound." + qualityKey,
+                qualityFallback)
+                .formatted(Formatting.LIGHT_PURPLE, Formatting.BOLD);
 
+        return Text.translatableWithFallback(
+                "message.knowledgebound.crafting_quality",
+                // Fallback keeps %s so clients without the mod still get the styled word
+                "You crafted a %s quality item. Improve your smithing knowledge for better quality.",
+                qualityWord)
+                .formatted(Formatting.AQUA);
+    }
+
+    private static Text[] buildArmorRequired() {
+        Text[] texts = new Text[ARMOR_TIER_NAMES.length + 1];
+        for (int tier = 0; tier <= ARMOR_TIER_NAMES.length; tier++) {
+            String key = tier < ARMOR_TIER_NAMES.length ? Integer.toString(tier) : "higher";
+            String fallbackName = tier < ARMOR_TIER_NAMES.length ? ARMOR_TIER_NAMES[tier] : "higher";
+
+            Text tierName = Text.translatableWithFallback("armor_tier.knowledgebound." + key, fallbackName);
+            texts[tier] = Text.translatableWithFallback(
+                    "message.knowledgebound.armor_required",
+                    "You need " + fallbackName + " Combat Knowledge to wear this armor!",
+                    tierName)
+                    .formatted(Formatting.RED);
+        }
+        return texts;
+    }
 }
@@ -1,16 +1,40 @@
 package net.maxello.knowledgebound;
 
+import com.mojang.authlib.GameProfile;
 import com.mojang.brigadier.Command;
+import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.argument.GameProfileArgumentType;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
+import net.minecraft.util.UserCache;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public final class KnowledgeCommands {
 
+    // "30m", "2h", "1d6h" …
+    private static final Pattern DURATION = Pattern.compile("(?:\\d+[smhd])+");
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+)([smhd])");
+
+    private static final int TOP_LIMIT = 10;
+
     private KnowledgeCommands() {}
 
     public static void init() {
@@ -21,11 +45,28 @@ public final class KnowledgeCommands {
                             .requires(src -> src.hasPermissionLevel(0))
                             .executes(KnowledgeCommands::executeCheckXp)
             );
-            // /kb (alias)
+            // /kb (alias), /kb top <knowledge>, /kb reload, /kb stats, /kb rollback <player> <time>
             dispatcher.register(
                     CommandManager.literal("kb")
                             .requires(src -> src.hasPermissionLevel(0))
                             .executes(KnowledgeCommands::executeCheckXp)
+                            .then(CommandManager.literal("top")
+                                    .requires(src -> src.hasPermissionLevel(2))
+                                    .then(CommandManager.argument("knowledge", StringArgumentType.word())
+                                            .suggests((ctx, builder) -> CommandSource.suggestMatching(
+                                                    KnowledgeRegistry.all().stream().map(def -> def.getId().getPath()), builder))
+                                            .executes(KnowledgeCommands::executeTop)))
+                            .then(CommandManager.literal("reload")
+                                    .requires(src -> src.hasPermissionLevel(2))
+                                    .executes(KnowledgeCommands::executeReload))
+                            .then(CommandManager.literal("stats")
+                                    .requires(src -> src.hasPermissionLevel(2))
+                                    .executes(KnowledgeCommands::executeStats))
+                            .then(CommandManager.literal("rollback")
+                                    .requires(src -> src.hasPermissionLevel(3))
+                                    .then(CommandManager.argument("player", GameProfileArgumentType.gameProfile())
+                                            .then(CommandManager.argument("time", StringArgumentType.greedyString())
+                                                    .executes(KnowledgeCommands::executeRollback))))
             );
         });
     }
@@ -42,12 +83,14 @@ public final class KnowledgeCommands {
 
         src.sendFeedback(() -> Text.literal("=== Knowledge levels ==="), false);
 
+        PlayerKnowledgeData data = PlayerKnowledgeManager.getData(player);
+
         for (KnowledgeDefinition def : KnowledgeRegistry.all()) {
             Identifier id = def.getId();
-            PlayerKnowledgeManager.PlayerKnowledgeState state =
-                    PlayerKnowledgeManager.getState(player, id);
+            int ordinal = def.getOrdinal();
 
-            int tier = state.tier;
+            int tier = data.getTier(ordinal);
+            int minutes = data.getMinutes(ordinal);
             int nextTier = tier + 1;
             int needed = (nextTier <= def.getMaxTier())
                     ? def.getMinutesForTier(nextTier)
@@ -57,7 +100,7 @@ public final class KnowledgeCommands {
             String line;
             if (needed > 0) {
                 line = String.format("%s: Tier %d (%d / %d min)",
-                        name, tier, state.currentMinutes, needed);
+                        name, tier, minutes, needed);
             } else {
                 line = String.format("%s: Tier %d (MAX)", name, tier);
             }
@@ -67,4 +110,228 @@ public final class KnowledgeCommands {
 
         return Command.SINGLE_SUCCESS;
     }
+
+    /**
+     * Leaderboard for one knowledge across every stored player. The query
+     * runs off the server thread; the answer is sent from the server thread.
+     */
+    private static int executeTop(CommandContext<ServerCommandSource> ctx) {
+        ServerCommandSource src = ctx.getSource();
+        String path = StringArgumentType.getString(ctx, "knowledge");
+        KnowledgeDefinition def = KnowledgeRegistry.get(new Identifier(KnowledgeBound.MOD_ID, path));
+        if (def == null) {
+            src.sendError(Text.literal("Unknown knowledge: " + path));
+            return 0;
+        }
+
+        KnowledgeServerState state = KnowledgeServerState.get();
+        if (state == null) {
+            return 0;
+        }
+
+        MinecraftServer server = src.getServer();
+        state.top(def, TOP_LIMIT)
+                .whenCompleteAsync((ranked, error) -> {
+                    if (KnowledgeServerState.get() != state) return; // server stopped meanwhile
+
+                    if (error != null) {
+                        KnowledgeBound.LOGGER.error("[KnowledgeBound] Knowledge leaderboard failed", error);
+                        src.sendError(Text.literal("Could not read the knowledge store. See the server log."));
+                        return;
+                    }
+
+                    String name = path.replace('_', ' ');
+                    src.sendFeedback(() -> Text.literal("=== Top " + name + " ==="), false);
+                    for (int i = 0; i < ranked.size(); i++) {
+                        KnowledgeStore.Ranked entry = ranked.get(i);
+                        String player = playerName(server, entry.uuid);
+                        String line = String.format("%d. %s: Tier %d (%d min)", i + 1, player, entry.tier, entry.minutes);
+                        src.sendFeedback(() -> Text.literal(line), false);
+                    }
+                }, server);
+
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static String playerName(MinecraftServer server, UUID uuid) {
+        UserCache cache = server.getUserCache();
+        if (cache == null) return uuid.toString();
+        return cache.getByUuid(uuid).map(GameProfile::getName).orElse(uuid.toString());
+    }
+
+    /**
+     * Re-read the config and rebuild every table derived from it. Commands run
+     * on the server thread, so the swap never races a gameplay event.
+     */
+    private static int executeReload(CommandContext<ServerCommandSource> ctx) {
+        ServerCommandSource src = ctx.getSource();
+
+        if (!KnowledgeBoundConfig.reload()) {
+            src.sendError(Text.literal("Config could not be read, keeping the current one. See the server log."));
+            return 0;
+        }
+
+        // Dependency order: definitions → crafting rules → block/item tables that reference both
+        KnowledgeRegistry.rebuild();
+        CraftingRuleRegistry.rebuild();
+        GatherBlockRegistry.rebuild();
+        ItemProfileRegistry.rebuild();
+
+        // Armor requirements may have changed
+        for (ServerPlayerEntity player : src.getServer().getPlayerManager().getPlayerList()) {
+            ArmorRestrictionHandler.checkPlayerArmor(player);
+        }
+
+        src.sendFeedback(() -> Text.literal("KnowledgeBound config reloaded."), true);
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static int executeStats(CommandContext<ServerCommandSource> ctx) {
+        ServerCommandSource src = ctx.getSource();
+        double uptime = Math.max(1.0, KnowledgeMetrics.uptimeSeconds());
+
+        src.sendFeedback(() -> Text.literal(String.format("=== KnowledgeBound stats (%.0f s) ===", uptime)), false);
+
+        // Hook timings
+        for (KnowledgeMetrics.Hook hook : KnowledgeMetrics.Hook.values()) {
+            KnowledgeMetrics.LatencyHistogram latency = KnowledgeMetrics.latency(hook);
+            long calls = latency.count();
+            String line = String.format("%s: %d calls (%.1f/s), p50 %s, p99 %s, max %s",
+                    hook.key, calls, calls / uptime,
+                    formatNanos(latency.percentileNanos(0.50)),
+                    formatNanos(latency.percentileNanos(0.99)),
+                    formatNanos(latency.maxNanos()));
+            src.sendFeedback(() -> Text.literal(line), false);
+        }
+
+        // Per-knowledge outcomes
+        for (KnowledgeDefinition def : KnowledgeRegistry.all()) {
+            String line = String.format("%s: %d XP minutes, %d level-ups, %d failed gathers, crafts %d fail / %d poor / %d normal",
+                    def.getId().getPath(),
+                    KnowledgeMetrics.xpMinutes(def),
+                    KnowledgeMetrics.levelUps(def),
+                    KnowledgeMetrics.failedGathers(def),
+                    KnowledgeMetrics.craftingOutcomes(def, CraftingKnowledgeRule.Outcome.FAIL),
+                    KnowledgeMetrics.craftingOutcomes(def, CraftingKnowledgeRule.Outcome.POOR),
+                    KnowledgeMetrics.craftingOutcomes(def, CraftingKnowledgeRule.Outcome.NORMAL));
+            src.sendFeedback(() -> Text.literal(line), false);
+        }
+
+        // Memory
+        List<ServerPlayerEntity> online = src.getServer().getPlayerManager().getPlayerList();
+        long onlineBytes = 0;
+        for (ServerPlayerEntity player : online) {
+            onlineBytes += PlayerKnowledgeManager.getData(player).estimateSizeInBytes();
+        }
+        long perPlayer = online.isEmpty() ? 0 : onlineBytes / online.size();
+        String memory = String.format("memory: %d online (~%d B each, %d B total)", online.size(), perPlayer, onlineBytes);
+        src.sendFeedback(() -> Text.literal(memory), false);
+
+        KnowledgeServerState state = KnowledgeServerState.get();
+        if (state != null) {
+            String cache = String.format("cache: %d recently departed (%d B), %d saves queued",
+                    state.getRecentlyDepartedCount(),
+                    state.getRecentlyDepartedSizeInBytes(),
+                    state.getStore().getQueueDepth());
+            src.sendFeedback(() -> Text.literal(cache), false);
+        }
+
+        return Command.SINGLE_SUCCESS;
+    }
+
+    /**
+     * Restore a player's knowledge to what the journal says it was at a point
+     * in time. The history is rebuilt on the journal thread, then applied on
+     * the server thread.
+     */
+    private static int executeRollback(CommandContext<ServerCommandSource> ctx) throws CommandSyntaxException {
+        ServerCommandSource src = ctx.getSource();
+
+        Collection<GameProfile> profiles = GameProfileArgumentType.getProfileArgument(ctx, "player");
+        if (profiles.size() != 1) {
+            src.sendError(Text.literal("Pick exactly one player."));
+            return 0;
+        }
+        GameProfile profile = profiles.iterator().next();
+
+        long target = parseRollbackTime(StringArgumentType.getString(ctx, "time"));
+        if (target < 0) {
+            src.sendError(Text.literal("Use a duration ago like 30m, 2h or 1d6h, or a time like 2026-01-31T18:00:00Z."));
+            return 0;
+        }
+
+        KnowledgeServerState state = KnowledgeServerState.get();
+        KnowledgeJournal journal = state != null ? state.getJournal() : null;
+        if (journal == null) {
+            src.sendError(Text.literal("The knowledge journal is disabled (journalEnabled in the config)."));
+            return 0;
+        }
+
+        String when = Instant.ofEpochMilli(target).truncatedTo(ChronoUnit.SECONDS).toString();
+        src.sendFeedback(() -> Text.literal("Looking up " + profile.getName() + "'s knowledge at " + when + "..."), false);
+
+        journal.lookup(profile.getId(), target).whenCompleteAsync((lookup, error) -> {
+            if (KnowledgeServerState.get() != state) return; // server stopped meanwhile
+
+            if (error != null) {
+                KnowledgeBound.LOGGER.error("[KnowledgeBound] Knowledge rollback lookup failed", error);
+                src.sendError(Text.literal("Could not read the knowledge journal. See the server log."));
+                return;
+            }
+
+            switch (lookup.status) {
+                case TOO_OLD -> src.sendError(Text.literal("The journal doesn't go back to " + when + "."));
+                case NO_HISTORY -> src.sendError(Text.literal("No recorded knowledge for " + profile.getName() + " before " + when + "."));
+                case FOUND -> {
+                    if (!PlayerKnowledgeManager.rollback(state, profile.getId(), lookup.history)) {
+                        src.sendError(Text.literal(profile.getName() + "'s knowledge is still loading, try again in a moment."));
+                        return;
+                    }
+                    src.sendFeedback(() -> Text.literal("Rolled back " + profile.getName() + "'s knowledge to " + when + "."), true);
+                }
+            }
+        }, src.getServer());
+
+        return Command.SINGLE_SUCCESS;
+    }
+
+    /**
+     * Epoch millis for a duration ago ("1d6h") or an ISO-8601 instant, or -1 if neither.
+     */
+    private static long parseRollbackTime(String input) {
+        String text = input.trim().toLowerCase(Locale.ROOT);
+
+        if (DURATION.matcher(text).matches()) {
+            long millis = 0L;
+            Matcher part = DURATION_PART.matcher(text);
+            while (part.find()) {
+                long amount;
+                try {
+                    amount = Long.parseLong(part.group(1));
+                } catch (NumberFormatException e) {
+                    return -1L;
+                }
+                TimeUnit unit = switch (part.group(2)) {
+                    case "s" -> TimeUnit.SECONDS;
+                    case "m" -> TimeUnit.MINUTES;
+                    case "h" -> TimeUnit.HOURS;
+                    default -> TimeUnit.DAYS;
+                };
+                millis += unit.toMillis(amount);
+            }
+            return Math.max(0L, System.currentTimeMillis() - millis);
+        }
+
+        try {
+            return Instant.parse(input.trim()).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1L;
+        }
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000L) return nanos + " ns";
+        if (nanos < 1_000_000L) return String.format("%.1f µs", nanos / 1_000.0);
+        return String.format("%.2f ms", nanos / 1_000_000.0);
+    }
 }
@@ -41,6 +41,7 @@ public class KnowledgeDefinition {
     }
 
     private final Identifier id;
+    private final String idString;
     private final Type type;
     private final int maxTier;
 
@@ -52,6 +53,9 @@ public class KnowledgeDefinition {
 
     private final List<XpAction> xpActions;
 
+    // Stable index assigned by KnowledgeRegistry, used for dense per-player storage
+    private int ordinal = -1;
+
     public KnowledgeDefinition(
             Identifier id,
             Type type,
@@ -61,6 +65,7 @@ public class KnowledgeDefinition {
             List<XpAction> xpActions
     ) {
         this.id = id;
+        this.idString = id.toString();
         this.type = type;
         this.maxTier = maxTier;
         this.tierMinutes = tierMinutes;
@@ -72,6 +77,19 @@ public class KnowledgeDefinition {
         return id;
     }
 
+    /** Cached {@code getId().toString()}. */
+    public String getIdString() {
+        return idString;
+    }
+
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    void assignOrdinal(int ordinal) {
+        this.ordinal = ordinal;
+    }
+
     public Type getType() {
         return type;
     }
@@ -3,35 +3,26 @@ package net.maxello.knowledgebound;
 import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
 import net.fabricmc.fabric.api.entity.event.v1.ServerLivingEntityEvents;
 
-import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
-import net.minecraft.block.Blocks;
-import net.minecraft.entity.Entity;
 
 import net.minecraft.registry.tag.DamageTypeTags;
 import net.minecraft.server.network.ServerPlayerEntity;
 
 import net.minecraft.item.ItemStack;
 import net.minecraft.registry.Registries;
-import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
-import java.util.Random;
-
 /**
  * Handles block-break XP/failure for material knowledges,
  * ranged combat XP, and the crafting hook used by the mixin.
  */
 public class KnowledgeEvents {
 
-    private static final Random RANDOM = new Random();
-
     public static void init() {
         KnowledgeBound.LOGGER.info("[KnowledgeBound] Registering events…");
         registerBlockBreakXpAndFailure();
-        registerRangedCombatXp();
-        registerMeleeCombatXp();
+        registerCombatXp();
     }
 
     // ----------------------------------------------------------------------
@@ -42,33 +33,18 @@ public class KnowledgeEvents {
         PlayerBlockBreakEvents.BEFORE.register((world, player, pos, state, blockEntity) -> {
             if (!(player instanceof ServerPlayerEntity serverPlayer)) return true;
 
-            Block block = state.getBlock();
-            Identifier blockId = Registries.BLOCK.getId(block);
-
-            if (isForestryBlock(blockId)) {
-                KnowledgeDefinition def = KnowledgeRegistry.get(KnowledgeRegistry.FORESTRY_ID);
-                if (def != null) {
-                    return handleGatherBlock(world, serverPlayer, pos, state, def);
-                }
-            } else if (isMiningBlock(blockId)) {
-                KnowledgeDefinition def = KnowledgeRegistry.get(KnowledgeRegistry.MINING_ID);
-                if (def != null) {
-                    return handleGatherBlock(world, serverPlayer, pos, state, def);
-                }
-            } else if (isDiggingBlock(blockId)) {
-                KnowledgeDefinition def = KnowledgeRegistry.get(KnowledgeRegistry.DIGGING_ID);
-                if (def != null) {
-                    return handleGatherBlock(world, serverPlayer, pos, state, def);
-                }
-            } else if (isFarmingBlock(blockId)) {
-                KnowledgeDefinition def = KnowledgeRegistry.get(KnowledgeRegistry.FARMING_ID);
-                if (def != null) {
-                    return handleGatherBlock(world, serverPlayer, pos, state, def);
+            long start = System.nanoTime();
+            try {
+                GatherBlockRegistry.Entry entry = GatherBlockRegistry.get(state.getBlock());
+                if (entry == null) {
+                    // Not one of our knowledge blocks → vanilla behaviour.
+                    return true;
                 }
-            }
 
-            // Not one of our knowledge blocks → vanilla behaviour.
-            return true;
+                return handleGatherBlock(world, serverPlayer, pos, state, entry);
+            } finally {
+                KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.BLOCK_BREAK, start);
+            }
         });
     }
 
@@ -76,25 +52,49 @@ public class KnowledgeEvents {
                                              ServerPlayerEntity player,
                                              BlockPos pos,
                                              BlockState state,
-                                             KnowledgeDefinition def) {
+                                             GatherBlockRegistry.Entry entry) {
+
+        KnowledgeJfrEvents.GatherEvent event = new KnowledgeJfrEvents.GatherEvent();
+        event.begin();
+
+        KnowledgeDefinition def = entry.knowledge;
+        int tier = PlayerKnowledgeManager.getTier(player, def);
+
+        // Chance that a gather action yields no drops, per tier.
+        double failChance = entry.failChance(tier);
+        boolean fail = failChance > 0.0 && PlayerKnowledgeManager.nextRoll(player) < failChance;
+
+        try {
+            return fail
+                    ? failGather(world, player, pos, def)
+                    : succeedGather(player, def);
+        } finally {
+            if (event.shouldCommit()) {
+                event.player = player.getGameProfile().getName();
+                event.knowledge = def.getIdString();
+                event.tier = tier;
+                event.block = Registries.BLOCK.getId(state.getBlock()).toString();
+                event.failed = fail;
+                event.commit();
+            }
+        }
+    }
 
-        int tier = PlayerKnowledgeManager.getTier(player, def.getId());
-        double failChance = getGatherFailChance(def, tier);
-        boolean fail = RANDOM.nextDouble() < failChance;
+    private static boolean failGather(World world, ServerPlayerEntity player, BlockPos pos, KnowledgeDefinition def) {
+        KnowledgeMetrics.failedGather(def);
 
-        if (fail) {
-            // Scuffed gather: block breaks, but no drops and no XP.
-            if (!world.isClient()) {
-                world.breakBlock(pos, false, player); // false -> no item drops
+        // Scuffed gather: block breaks, but no drops and no XP.
+        if (!world.isClient()) {
+            world.breakBlock(pos, false, player); // false -> no item drops
 
-                player.sendMessage(
-                        KnowledgeBoundTextFormatter.gatheringFail(def.getId()),
-                        true
-                );
-            }
-            return false; // cancel vanilla breaking, already handled it
+            PlayerKnowledgeManager.sendActionBar(player,
+                    KnowledgeBoundTextFormatter.gatheringFail(def),
+                    KnowledgeOutbox.PRIORITY_RESULT);
         }
+        return false; // cancel vanilla breaking, already handled it
+    }
 
+    private static boolean succeedGather(ServerPlayerEntity player, KnowledgeDefinition def) {
         // Success: let vanilla handle breaking + drops, and grant XP
         KnowledgeDefinition.ToolTier toolTier =
                 ToolTierHelper.fromItem(player.getMainHandStack());
@@ -103,194 +103,78 @@ public class KnowledgeEvents {
         return true;
     }
 
-    /**
-     * Chance that a gather action yields no drops, per tier.
-     * Applies to Forestry, Mining, Digging, Farming.
-     */
-    private static double getGatherFailChance(KnowledgeDefinition def, int tier) {
-        KnowledgeBoundConfig cfg = KnowledgeBoundConfig.INSTANCE;
-        Identifier id = def.getId();
-
-        KnowledgeBoundConfig.GatherFailConfig gCfg = null;
-
-        if (id.equals(KnowledgeRegistry.FORESTRY_ID)) {
-            gCfg = cfg.forestryGatherFail;
-        } else if (id.equals(KnowledgeRegistry.MINING_ID)) {
-            gCfg = cfg.miningGatherFail;
-        } else if (id.equals(KnowledgeRegistry.DIGGING_ID)) {
-            gCfg = cfg.diggingGatherFail;
-        } else if (id.equals(KnowledgeRegistry.FARMING_ID)) {
-            gCfg = cfg.farmingGatherFail;
-        }
-
-        if (gCfg == null) {
-            return 0.0;
-        }
-
-        return gCfg.getForTier(tier);
-    }
-
-
-    // -----------------------------
-    // Block type checks
-    // -----------------------------
-
-    private static boolean isForestryBlock(Identifier blockId) {
-        String path = blockId.getPath();
-        boolean vanilla = path.endsWith("_log")
-                || path.endsWith("_wood")
-                || path.endsWith("_stem")
-                || path.endsWith("_hyphae");
-
-        return vanilla || matchesExtraBlock(blockId, KnowledgeBoundConfig.INSTANCE.extraForestryBlocks);
-    }
-
-    private static boolean isMiningBlock(Identifier blockId) {
-        String path = blockId.getPath();
-
-        boolean stoneLike =
-                path.equals("stone") ||
-                        path.equals("deepslate") ||
-                        path.equals("netherrack") ||
-                        path.equals("blackstone") ||
-                        path.equals("tuff");
-
-        boolean oreLike =
-                path.endsWith("_ore") ||
-                        path.equals("gilded_blackstone");
-
-        return stoneLike || oreLike
-                || matchesExtraBlock(blockId, KnowledgeBoundConfig.INSTANCE.extraMiningBlocks);
-    }
-
-    private static boolean isDiggingBlock(Identifier blockId) {
-        boolean vanilla =
-                blockId.equals(Registries.BLOCK.getId(Blocks.DIRT)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.COARSE_DIRT)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.ROOTED_DIRT)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.GRASS_BLOCK)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.PODZOL)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.MYCELIUM)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.MUD)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.MUDDY_MANGROVE_ROOTS)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.SAND)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.RED_SAND)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.GRAVEL)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.CLAY)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.SNOW)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.SNOW_BLOCK)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.POWDER_SNOW)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.SOUL_SAND)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.SOUL_SOIL));
-
-        return vanilla || matchesExtraBlock(blockId, KnowledgeBoundConfig.INSTANCE.extraDiggingBlocks);
-    }
-
-    private static boolean isFarmingBlock(Identifier blockId) {
-        boolean vanilla =
-                blockId.equals(Registries.BLOCK.getId(Blocks.WHEAT)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.CARROTS)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.POTATOES)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.BEETROOTS)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.MELON_STEM)) ||
-                        blockId.equals(Registries.BLOCK.getId(Blocks.PUMPKIN_STEM));
-
-        return vanilla || matchesExtraBlock(blockId, KnowledgeBoundConfig.INSTANCE.extraFarmingBlocks);
-    }
-
-    private static boolean matchesExtraBlock(Identifier blockId, java.util.List<String> ids) {
-        String full = blockId.toString();
-        for (String s : ids) {
-            if (full.equals(s)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     // ----------------------------------------------------------------------
-    // Ranged Combat XP (bow / crossbow hits)
+    // Combat XP (melee + ranged), one ALLOW_DAMAGE listener for both
     // ----------------------------------------------------------------------
-    private static void registerMeleeCombatXp() {
-        ServerLivingEntityEvents.ALLOW_DAMAGE.register((entity, source, amount) -> {
-            // Ignore non-positive damage
-            if (amount <= 0.0f) {
-                return true;
-            }
 
-            // Skip projectile damage – that's handled by ranged combat
-            if (source.isIn(DamageTypeTags.IS_PROJECTILE)) {
-                return true;
-            }
-
-            Entity attacker = source.getAttacker();
-            if (!(attacker instanceof ServerPlayerEntity player)) {
+    private static void registerCombatXp() {
+        ServerLivingEntityEvents.ALLOW_DAMAGE.register((entity, source, amount) -> {
+            // Cheapest check first: mob farms, falls, fire etc. have no player attacker
+            if (!(source.getAttacker() instanceof ServerPlayerEntity player)) {
                 return true;
             }
-
-            KnowledgeDefinition meleeDef =
-                    KnowledgeRegistry.get(KnowledgeRegistry.MELEE_COMBAT_ID);
-            if (meleeDef == null) {
+            if (amount <= 0.0f) {
                 return true;
             }
 
-            // Only count sword hits for now
-            ItemStack held = player.getMainHandStack();
-            if (!isSwordItem(held)) {
-                return true;
+            long start = System.nanoTime();
+            try {
+                if (source.isIn(DamageTypeTags.IS_PROJECTILE)) {
+                    onRangedHit(player);
+                } else {
+                    onMeleeHit(player);
+                }
+            } finally {
+                KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.DAMAGE, start);
             }
-
-            // Map the sword material to WOOD / STONE / IRON / DIAMOND, etc.
-            KnowledgeDefinition.ToolTier toolTier =
-                    ToolTierHelper.fromItem(held);
-
-            // Grant XP if this tool tier is valid for current melee tier
-            grantXpIfValidTool(player, meleeDef, toolTier);
-
-            return true; // never cancel damage
+            return true; // never cancel damage, just observe it
         });
     }
 
-    private static void registerRangedCombatXp() {
-        ServerLivingEntityEvents.ALLOW_DAMAGE.register((entity, source, amount) -> {
-            // This runs BEFORE damage is applied, but after we've confirmed
-            // that something is about to take damage.
-
-            // Ignore non-positive damage
-            if (amount <= 0.0f) {
-                return true; // allow damage
-            }
+    private static void onMeleeHit(ServerPlayerEntity player) {
+        // A sweeping attack damages several entities in the same tick; count the swing once
+        KnowledgeHolder holder = (KnowledgeHolder) player;
+        int tick = player.server.getTicks();
+        if (holder.knowledgebound$getLastMeleeTick() == tick) {
+            return;
+        }
+        holder.knowledgebound$setLastMeleeTick(tick);
 
-            // Only care about projectile damage (arrows, etc.)
-            if (!source.isIn(DamageTypeTags.IS_PROJECTILE)) {
-                return true;
-            }
+        // Only count sword hits for now
+        ItemStack held = player.getMainHandStack();
+        if (held.isEmpty()) {
+            return;
+        }
+        ItemKnowledgeProfile profile = ItemProfileRegistry.get(held.getItem());
+        if (!profile.meleeWeapon) {
+            return;
+        }
 
-            Entity attacker = source.getAttacker();
-            if (!(attacker instanceof ServerPlayerEntity player)) {
-                return true;
-            }
+        KnowledgeDefinition meleeDef =
+                KnowledgeRegistry.get(KnowledgeRegistry.MELEE_COMBAT_ID);
+        if (meleeDef == null) {
+            return;
+        }
 
-            // Ranged knowledge definition
-            KnowledgeDefinition rangedDef =
-                    KnowledgeRegistry.get(KnowledgeRegistry.RANGED_COMBAT_ID);
-            if (rangedDef == null) {
-                return true;
-            }
+        // Grant XP if this tool tier is valid for current melee tier
+        grantXpIfValidTool(player, meleeDef, profile.toolTier);
+    }
 
-            // What is the player holding? (bow / crossbow)
-            KnowledgeDefinition.ToolTier toolTier =
-                    ToolTierHelper.fromItem(player.getMainHandStack());
+    private static void onRangedHit(ServerPlayerEntity player) {
+        KnowledgeDefinition rangedDef =
+                KnowledgeRegistry.get(KnowledgeRegistry.RANGED_COMBAT_ID);
+        if (rangedDef == null) {
+            return;
+        }
 
-            // Will only grant XP if that tier is valid for the current knowledge tier
-            grantXpIfValidTool(player, rangedDef, toolTier);
+        // What is the player holding? (bow / crossbow)
+        KnowledgeDefinition.ToolTier toolTier =
+                ToolTierHelper.fromItem(player.getMainHandStack());
 
-            // We don't want to block damage, just observe it.
-            return true;
-        });
+        // Will only grant XP if that tier is valid for the current knowledge tier
+        grantXpIfValidTool(player, rangedDef, toolTier);
     }
 
-
     // ----------------------------------------------------------------------
     // XP helper
     // ----------------------------------------------------------------------
@@ -298,9 +182,9 @@ public class KnowledgeEvents {
     private static void grantXpIfValidTool(ServerPlayerEntity player,
                                            KnowledgeDefinition def,
                                            KnowledgeDefinition.ToolTier toolTier) {
-        int currentTier = PlayerKnowledgeManager.getTier(player, def.getId());
+        int currentTier = PlayerKnowledgeManager.getTier(player, def);
         if (def.getXpToolTiersFor(currentTier).contains(toolTier)) {
-            PlayerKnowledgeManager.grantMinuteIfAllowed(player, def.getId());
+            PlayerKnowledgeManager.grantMinuteIfAllowed(player, def);
         }
     }
 
@@ -308,74 +192,53 @@ public class KnowledgeEvents {
     // Crafting hook used by CraftingResultSlotMixin
     // ----------------------------------------------------------------------
 
-    public static ItemStack handleCrafting(ServerPlayerEntity player,
-                                           Identifier itemId,
-                                           ItemStack originalStack) {
+    /**
+     * Apply crafting knowledge to a result stack that is being taken,
+     * mutating it in place (emptied on failure, damaged on poor quality).
+     */
+    public static void handleCrafting(ServerPlayerEntity player, ItemStack stack) {
+        long start = System.nanoTime();
+        try {
+            applyCraftingKnowledge(player, stack);
+        } finally {
+            KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.CRAFTING, start);
+        }
+    }
 
-        // 1) Apply crafting rule (poor / fail / normal) if one exists
-        CraftingKnowledgeRule rule = CraftingRuleRegistry.getForItem(itemId);
-        ItemStack result = originalStack;
+    private static void applyCraftingKnowledge(ServerPlayerEntity player, ItemStack stack) {
+        ItemKnowledgeProfile profile = ItemProfileRegistry.get(stack.getItem());
 
+        // 1) Apply crafting rule (poor / fail / normal) if one exists
+        CraftingKnowledgeRule rule = profile.craftingRule;
         if (rule != null) {
             int tier = PlayerKnowledgeManager.getTier(player, rule.getKnowledgeId());
-            result = rule.apply(player, itemId, originalStack, tier);
+            if (rule.apply(player, stack, tier) == CraftingKnowledgeRule.Outcome.FAIL) {
+                return;
+            }
         }
 
         // 2) Grant smithing XP (only if something was actually crafted)
-        if (!result.isEmpty()) {
-            grantSmithingXp(player, itemId);
-        }
-
-        return result;
+        grantSmithingXp(player, profile);
     }
 
     // ----------------------------------------------------------------------
     // Smithing XP helpers (tool / weapon / armour crafting)
     // ----------------------------------------------------------------------
 
-    private static void grantSmithingXp(ServerPlayerEntity player, Identifier itemId) {
-        String path = itemId.getPath();
-
-        if (isToolItem(path)) {
+    private static void grantSmithingXp(ServerPlayerEntity player, ItemKnowledgeProfile profile) {
+        if (profile.tool) {
             PlayerKnowledgeManager.grantMinuteIfAllowed(player, KnowledgeRegistry.TOOLSMITHING_ID);
         }
 
-        if (isWeaponItem(path)) {
+        if (profile.weapon) {
             PlayerKnowledgeManager.grantMinuteIfAllowed(player, KnowledgeRegistry.WEAPONSMITHING_ID);
         }
 
-        if (isArmorItem(path)) {
+        if (profile.armor) {
             PlayerKnowledgeManager.grantMinuteIfAllowed(player, KnowledgeRegistry.ARMOURING_ID);
         }
     }
 
-    private static boolean isToolItem(String path) {
-        return path.endsWith("_pickaxe")
-                || path.endsWith("_axe")
-                || path.endsWith("_shovel")
-                || path.endsWith("_hoe");
-    }
-
-    private static boolean isWeaponItem(String path) {
-        return path.endsWith("_sword")
-                || path.equals("bow")
-                || path.equals("crossbow")
-                || path.equals("trident");
-    }
-    private static boolean isSwordItem(ItemStack stack) {
-        if (stack.isEmpty()) return false;
-        String path = stack.getItem().toString();
-        return path.endsWith("_sword");
-    }
-
-    private static boolean isArmorItem(String path) {
-        return path.endsWith("_helmet")
-                || path.endsWith("_chestplate")
-                || path.endsWith("_leggings")
-                || path.endsWith("_boots")
-                || path.equals("turtle_helmet");
-    }
-
     // ----------------------------------------------------------------------
     // Tool tier helper
     // ----------------------------------------------------------------------
@@ -385,19 +248,7 @@ public class KnowledgeEvents {
             if (stack.isEmpty()) {
                 return KnowledgeDefinition.ToolTier.FIST;
             }
-            String path = stack.getItem().toString();
-            if (path.contains("wooden_"))  return KnowledgeDefinition.ToolTier.WOOD;
-            if (path.contains("stone_"))   return KnowledgeDefinition.ToolTier.STONE;
-            if (path.contains("copper_"))  return KnowledgeDefinition.ToolTier.COPPER;
-            if (path.contains("iron_"))    return KnowledgeDefinition.ToolTier.IRON;
-            if (path.contains("diamond_")) return KnowledgeDefinition.ToolTier.DIAMOND;
-            if (path.contains("leather_"))   return KnowledgeDefinition.ToolTier.LEATHER;
-            if (path.contains("chainmail_")) return KnowledgeDefinition.ToolTier.CHAINMAIL;
-            if (path.contains("bow"))        return KnowledgeDefinition.ToolTier.BOW;
-            if (path.contains("crossbow"))   return KnowledgeDefinition.ToolTier.CROSSBOW;
-            if (path.contains("fishing_rod")) return KnowledgeDefinition.ToolTier.FISHING_ROD;
-
-            return KnowledgeDefinition.ToolTier.UNKNOWN;
+            return ItemProfileRegistry.get(stack.getItem()).toolTier;
         }
     }
 }
@@ -0,0 +1,238 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtTagSizeTracker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Per-player knowledge files (&lt;world&gt;/knowledgebound/players/&lt;uuid&gt;.dat),
+ * kept separate from vanilla's player.dat.
+ *
+ * Saves take an immutable NBT snapshot captured on the server thread and
+ * write it on a background thread: temp file → fsync → atomic rename.
+ * Multiple saves of the same player before the writer gets to them
+ * collapse into one write of the newest snapshot.
+ */
+public final class KnowledgeFileStore implements KnowledgeStore {
+
+    private static final String EXTENSION = ".dat";
+
+    private final Path directory;
+    private final ExecutorService writer;
+
+    // Latest not-yet-written snapshot per player; never modified after being put here
+    private final Map<UUID, NbtCompound> pending = new ConcurrentHashMap<>();
+
+    public KnowledgeFileStore(Path directory) {
+        this.directory = directory;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KnowledgeBound-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public NbtCompound load(UUID uuid) {
+        NbtCompound queued = pending.get(uuid);
+        if (queued != null) {
+            return queued.copy();
+        }
+
+        Path file = fileFor(uuid);
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try {
+            return read(file);
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to read knowledge file {}, moving it aside.", file, e);
+            try {
+                Files.move(file, file.resolveSibling(file.getFileName() + ".corrupt"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveError) {
+                KnowledgeBound.LOGGER.error("[KnowledgeBound] Could not move corrupt knowledge file {}", file, moveError);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public void save(UUID uuid, NbtCompound snapshot) {
+        pending.put(uuid, snapshot);
+        writer.execute(() -> writePending(uuid));
+    }
+
+    /**
+     * Full scan of the players directory; fine for occasional admin queries,
+     * use the h2 store for anything frequent.
+     */
+    @Override
+    public List<Ranked> top(KnowledgeDefinition def, int limit) {
+        List<Ranked> ranked = new ArrayList<>();
+        PlayerKnowledgeData data = new PlayerKnowledgeData();
+        int ordinal = def.getOrdinal();
+
+        forEachRecord((uuid, record) -> {
+            KnowledgeNbtCodec.decode(record, data);
+            if (!data.isDefault(ordinal)) {
+                ranked.add(new Ranked(uuid, data.getTier(ordinal), data.getMinutes(ordinal)));
+            }
+        });
+
+        ranked.sort(Comparator.comparingInt((Ranked r) -> r.tier)
+                .thenComparingInt(r -> r.minutes)
+                .reversed());
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+
+    /**
+     * Every stored record (queued snapshots win over files). Unreadable files are skipped.
+     */
+    public void forEachRecord(BiConsumer<UUID, NbtCompound> action) {
+        Map<UUID, NbtCompound> queued = new HashMap<>(pending);
+        queued.forEach(action);
+
+        if (!Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                UUID uuid;
+                try {
+                    uuid = UUID.fromString(name.substring(0, name.length() - EXTENSION.length()));
+                } catch (IllegalArgumentException e) {
+                    continue; // not a player file
+                }
+                if (queued.containsKey(uuid)) continue;
+
+                try {
+                    action.accept(uuid, read(file));
+                } catch (IOException e) {
+                    KnowledgeBound.LOGGER.warn("[KnowledgeBound] Skipping unreadable knowledge file {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to list knowledge files in {}", directory, e);
+        }
+    }
+
+    @Override
+    public void whenFlushed(Runnable action) {
+        writer.execute(() -> {
+            if (pending.isEmpty()) {
+                action.run();
+            }
+        });
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * Finish all queued writes and stop the writer thread.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Knowledge writer did not finish in time.");
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything still queued (e.g. after a failed write) gets one last synchronous try
+        for (UUID uuid : pending.keySet()) {
+            writePending(uuid);
+        }
+    }
+
+    private void writePending(UUID uuid) {
+        NbtCompound snapshot = pending.get(uuid);
+        if (snapshot == null) {
+            return; // already written by an earlier task
+        }
+
+        Path file = fileFor(uuid);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        KnowledgeJfrEvents.PersistenceEvent event = new KnowledgeJfrEvents.PersistenceEvent();
+        event.begin();
+        boolean written = false;
+
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+
+            // NbtIo closes the stream it writes to, so encode first, then write + fsync
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+            NbtIo.writeCompressed(snapshot, bytes);
+
+            try (FileChannel channel = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Only drop it if no newer snapshot arrived while we were writing
+            pending.remove(uuid, snapshot);
+            written = true;
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to write knowledge file {}", file, e);
+        } finally {
+            KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.STORE_WRITE, start);
+
+            if (event.shouldCommit()) {
+                event.player = uuid.toString();
+                event.records = 1;
+                event.operation = KnowledgeJfrEvents.PersistenceEvent.WRITE;
+                event.succeeded = written;
+                event.commit();
+            }
+        }
+    }
+
+    private static NbtCompound read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return NbtIo.readCompressed(in, NbtTagSizeTracker.ofUnlimitedBytes());
+        }
+    }
+
+    private Path fileFor(UUID uuid) {
+        return directory.resolve(uuid + EXTENSION);
+    }
+}
@@ -0,0 +1,20 @@
+package net.maxello.knowledgebound;
+
+/**
+ * Duck interface implemented on ServerPlayerEntity by ServerPlayerEntityMixin,
+ * so a player's knowledge state (and its pending XP actions and client
+ * updates) lives on the player entity itself.
+ */
+public interface KnowledgeHolder {
+
+    PlayerKnowledgeData knowledgebound$getKnowledge();
+
+    KnowledgeOutbox knowledgebound$getOutbox();
+
+    KnowledgeLedger knowledgebound$getLedger();
+
+    /** Server tick of the last melee hit we looked at (transient), to count a sweep once. */
+    int knowledgebound$getLastMeleeTick();
+
+    void knowledgebound$setLastMeleeTick(int tick);
+}
@@ -0,0 +1,148 @@
+package net.maxello.knowledgebound;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the mod's hooks, so tick spikes in a
+ * recording can be attributed to specific KnowledgeBound paths.
+ *
+ * All events are disabled by default; enable them in a JFR settings file
+ * (e.g. {@code knowledgebound.Gather#enabled=true}). While disabled,
+ * {@code shouldCommit()} is false and no fields are filled in, so the only
+ * cost is the small event object itself, which the JIT can usually
+ * eliminate but isn't guaranteed to.
+ */
+public final class KnowledgeJfrEvents {
+
+    private KnowledgeJfrEvents() {
+    }
+
+    @Name("knowledgebound.Gather")
+    @Label("Gather")
+    @Description("Block break handled by a gather knowledge")
+    @Category({"KnowledgeBound"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class GatherEvent extends Event {
+        @Label("Player")
+        public String player;
+
+        @Label("Knowledge")
+        public String knowledge;
+
+        @Label("Tier")
+        public int tier;
+
+        @Label("Block")
+        public String block;
+
+        @Label("Failed")
+        public boolean failed;
+    }
+
+    @Name("knowledgebound.Crafting")
+    @Label("Crafting Rule")
+    @Description("Crafting knowledge rule applied to a crafted item")
+    @Category({"KnowledgeBound"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class CraftingEvent extends Event {
+        @Label("Player")
+        public String player;
+
+        @Label("Knowledge")
+        public String knowledge;
+
+        @Label("Tier")
+        public int tier;
+
+        @Label("Item")
+        public String item;
+
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("knowledgebound.XpGrant")
+    @Label("XP Grant")
+    @Description("Knowledge minute credited, possibly with a level-up")
+    @Category({"KnowledgeBound"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class XpGrantEvent extends Event {
+        @Label("Player")
+        public String player;
+
+        @Label("Knowledge")
+        public String knowledge;
+
+        @Label("Tier")
+        @Description("Tier after the grant")
+        public int tier;
+
+        @Label("Level Up")
+        public boolean levelUp;
+
+        @Label("Actions")
+        @Description("Qualifying actions recorded in the tick")
+        public int actions;
+    }
+
+    @Name("knowledgebound.ArmorCheck")
+    @Label("Armor Check")
+    @Description("Armor slot checked against the player's combat knowledge")
+    @Category({"KnowledgeBound"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class ArmorCheckEvent extends Event {
+        @Label("Player")
+        public String player;
+
+        @Label("Slot")
+        public String slot;
+
+        @Label("Item")
+        public String item;
+
+        @Label("Required Tier")
+        public int requiredTier;
+
+        @Label("Combat Tier")
+        public int combatTier;
+
+        @Label("Removed")
+        public boolean removed;
+    }
+
+    @Name("knowledgebound.Persistence")
+    @Label("Knowledge Persistence")
+    @Description("Knowledge loaded, snapshotted for saving, or written to disk")
+    @Category({"KnowledgeBound"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class PersistenceEvent extends Event {
+        public static final String LOAD = "load";
+        public static final String SNAPSHOT = "snapshot";
+        public static final String WRITE = "write";
+
+        @Label("Player UUID")
+        @Description("Unset for batch writes")
+        public String player;
+
+        @Label("Records")
+        @Description("Records written; only set for writes")
+        public int records;
+
+        @Label("Operation")
+        public String operation;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+}
@@ -0,0 +1,684 @@
+package net.maxello.knowledgebound;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write-ahead journal of knowledge changes (&lt;world&gt;/knowledgebound/journal).
+ *
+ * Every change is appended on the server thread as a fixed-size binary
+ * record holding the knowledge's new absolute state, so replaying a record
+ * twice is harmless. A background thread group-commits the buffered
+ * records (one write + fsync per flush interval) into segment files.
+ *
+ * On startup, records newer than the last checkpoint are replayed onto the
+ * player files. A checkpoint is the sequence number up to which the player
+ * files are known to be complete. Segments are compacted into periodic
+ * snapshots, which together with the remaining segments answer "what was
+ * this player's knowledge at time T" for /kb rollback.
+ */
+public final class KnowledgeJournal {
+
+    // Record causes
+    public static final byte CAUSE_BASELINE = 0;
+    public static final byte CAUSE_MINUTE = 1;
+    public static final byte CAUSE_LEVEL_UP = 2;
+    public static final byte CAUSE_ADMIN = 3;
+    public static final byte CAUSE_SYNC = 4;
+
+    private static final int SEGMENT_MAGIC = 0x4B424A4C;  // "KBJL"
+    private static final int SNAPSHOT_MAGIC = 0x4B42534E; // "KBSN"
+    private static final int FORMAT_VERSION = 1;
+
+    // seq, time, uuid, cause, ordinal, tier, minutes, last minute, crc
+    private static final int RECORD_BYTES = 8 + 8 + 16 + 1 + 2 + 4 + 4 + 8 + 4;
+    private static final int CRC_OFFSET = RECORD_BYTES - 4;
+
+    private static final long SEGMENT_ROLL_BYTES = 8L << 20;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final ScheduledExecutorService executor;
+
+    // Appended to on the server thread, swapped out by the flush
+    private final Object lock = new Object();
+    private ByteBuffer active = ByteBuffer.allocate(64 * 1024);
+    private final CRC32C crc = new CRC32C();
+    private long nextSeq = 1L;
+
+    // Journal thread only
+    private ByteBuffer flushing = ByteBuffer.allocate(64 * 1024);
+    private FileChannel segment;
+    private long segmentBytes;
+    private long checkpointSeq;
+
+    /**
+     * One player's knowledge as rebuilt from the journal, indexed by ordinal.
+     * Knowledges without a record are at their defaults.
+     */
+    public static final class History {
+        final int[] tiers;
+        final int[] minutes;
+        final long[] lastXpMinuteIndex;
+        // Sequence number of the record behind each value; 0 = no record
+        final long[] seqs;
+        long lastSeq;
+
+        History(int knowledgeCount) {
+            this.tiers = new int[knowledgeCount];
+            this.minutes = new int[knowledgeCount];
+            this.lastXpMinuteIndex = new long[knowledgeCount];
+            this.seqs = new long[knowledgeCount];
+            Arrays.fill(this.lastXpMinuteIndex, -1L);
+        }
+
+        void set(int ordinal, int tier, int minutes, long lastMinute, long seq) {
+            this.tiers[ordinal] = tier;
+            this.minutes[ordinal] = minutes;
+            this.lastXpMinuteIndex[ordinal] = lastMinute;
+            this.seqs[ordinal] = seq;
+            this.lastSeq = Math.max(this.lastSeq, seq);
+        }
+
+        /**
+         * Apply the values newer than what {@code data} already reflects.
+         *
+         * @return true if anything changed
+         */
+        boolean replayOnto(PlayerKnowledgeData data) {
+            boolean changed = false;
+            int n = Math.min(seqs.length, data.size());
+            for (int ordinal = 0; ordinal < n; ordinal++) {
+                if (seqs[ordinal] <= data.getJournalSeq()) continue;
+                data.setTier(ordinal, tiers[ordinal]);
+                data.setMinutes(ordinal, minutes[ordinal]);
+                data.setLastXpMinuteIndex(ordinal, lastXpMinuteIndex[ordinal]);
+                changed = true;
+            }
+            if (changed) {
+                data.setJournalSeq(lastSeq);
+            }
+            return changed;
+        }
+
+        /** Overwrite every knowledge in {@code data} with this state. */
+        void restoreOnto(PlayerKnowledgeData data) {
+            int n = Math.min(seqs.length, data.size());
+            for (int ordinal = 0; ordinal < n; ordinal++) {
+                data.setTier(ordinal, tiers[ordinal]);
+                data.setMinutes(ordinal, minutes[ordinal]);
+                data.setLastXpMinuteIndex(ordinal, lastXpMinuteIndex[ordinal]);
+            }
+        }
+    }
+
+    /** Result of a point-in-time lookup for /kb rollback. */
+    public enum LookupStatus {
+        FOUND,
+        // Older than the oldest snapshot we still have
+        TOO_OLD,
+        // The player has no records up to that time
+        NO_HISTORY
+    }
+
+    public KnowledgeJournal(Path directory) {
+        this.directory = directory;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KnowledgeBound-Journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // --------------------------------------------------
+    //  Lifecycle
+    // --------------------------------------------------
+
+    /**
+     * Read the journal and return everyone with records newer than the last
+     * checkpoint. Call once, on the server thread, before {@link #start}.
+     */
+    public Map<UUID, History> recover() throws IOException {
+        Files.createDirectories(directory);
+        checkpointSeq = readCheckpoint();
+
+        Map<UUID, History> histories = new HashMap<>();
+        long maxSeq = Math.max(checkpointSeq, latestSnapshotSeq());
+        for (Path file : listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            // A segment may be just a header, or not even that, if we crashed right after opening it
+            maxSeq = Math.max(maxSeq, segmentFirstSeq(file));
+            maxSeq = Math.max(maxSeq, readSegment(file, checkpointSeq, Long.MAX_VALUE, null, histories));
+        }
+
+        synchronized (lock) {
+            nextSeq = maxSeq + 1L;
+        }
+        return histories;
+    }
+
+    /** Start the group-commit and snapshot schedule. */
+    public void start(int flushIntervalMillis, int snapshotIntervalMinutes, int retentionHours) {
+        executor.scheduleWithFixedDelay(this::flushQuietly,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(() -> compact(retentionHours),
+                snapshotIntervalMinutes, snapshotIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Flush what's left and stop. {@code filesComplete} means every change
+     * has reached the player files, so the next startup has nothing to replay.
+     */
+    public void close(boolean filesComplete) {
+        long lastSeq = lastSeq();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Knowledge journal did not finish in time.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flushQuietly();
+        if (filesComplete) {
+            writeCheckpoint(lastSeq);
+        }
+        closeSegment();
+    }
+
+    // --------------------------------------------------
+    //  Appending (server thread)
+    // --------------------------------------------------
+
+    /**
+     * Append the new state of one knowledge. Durable after the next flush.
+     *
+     * @return the record's sequence number
+     */
+    public long append(byte cause, UUID uuid, int ordinal, int tier, int minutes, long lastXpMinuteIndex) {
+        synchronized (lock) {
+            if (active.remaining() < RECORD_BYTES) {
+                ByteBuffer grown = ByteBuffer.allocate(active.capacity() * 2);
+                active.flip();
+                grown.put(active);
+                active = grown;
+            }
+
+            long seq = nextSeq++;
+            int start = active.position();
+            active.putLong(seq);
+            active.putLong(System.currentTimeMillis());
+            active.putLong(uuid.getMostSignificantBits());
+            active.putLong(uuid.getLeastSignificantBits());
+            active.put(cause);
+            active.putShort((short) ordinal);
+            active.putInt(tier);
+            active.putInt(minutes);
+            active.putLong(lastXpMinuteIndex);
+
+            crc.reset();
+            crc.update(active.array(), start, CRC_OFFSET);
+            active.putInt((int) crc.getValue());
+            return seq;
+        }
+    }
+
+    /** Sequence number of the newest appended record (0 if none). */
+    public long lastSeq() {
+        synchronized (lock) {
+            return nextSeq - 1L;
+        }
+    }
+
+    /**
+     * Record that the player files contain every change up to {@code seq}.
+     * Runs on the journal thread.
+     */
+    public void checkpoint(long seq) {
+        executor.execute(() -> writeCheckpoint(seq));
+    }
+
+    // --------------------------------------------------
+    //  Group commit (journal thread)
+    // --------------------------------------------------
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to write knowledge journal", e);
+            closeSegment(); // reopen a fresh segment on the next flush
+        }
+    }
+
+    private void flush() throws IOException {
+        ByteBuffer batch;
+        synchronized (lock) {
+            if (active.position() == 0) return;
+            batch = active;
+            active = flushing;
+            flushing = batch;
+        }
+
+        long start = System.nanoTime();
+        batch.flip();
+        try {
+            if (segment == null || segmentBytes >= SEGMENT_ROLL_BYTES) {
+                openSegment(batch.getLong(0));
+            }
+            while (batch.hasRemaining()) {
+                segmentBytes += segment.write(batch);
+            }
+            segment.force(false);
+        } finally {
+            // On failure the batch is lost from the journal but still in memory
+            // (and the player files); it's a durability gap, not corruption.
+            batch.clear();
+            KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.JOURNAL_FLUSH, start);
+        }
+    }
+
+    private void openSegment(long firstSeq) throws IOException {
+        closeSegment();
+        Path file = directory.resolve(SEGMENT_PREFIX + String.format("%016x", firstSeq) + SEGMENT_SUFFIX);
+        segment = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+        // Header: the knowledge id dictionary, so ordinals survive new knowledges being added
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            writeKnowledgeIds(out);
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes.toByteArray());
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        segment.force(true); // with the file's metadata, so a crash leaves no headerless segment
+        segmentBytes = header.capacity();
+    }
+
+    private void closeSegment() {
+        if (segment == null) return;
+        try {
+            segment.close();
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.warn("[KnowledgeBound] Failed to close journal segment", e);
+        }
+        segment = null;
+        segmentBytes = 0L;
+    }
+
+    // --------------------------------------------------
+    //  Snapshots and compaction (journal thread)
+    // --------------------------------------------------
+
+    /**
+     * Fold the closed segments into a new snapshot, then drop snapshots past
+     * the retention window and segments that no longer hold anything needed.
+     */
+    private void compact(int retentionHours) {
+        try {
+            flush();
+            closeSegment(); // the next flush starts a new segment
+
+            List<Path> segments = listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            if (segments.isEmpty()) return;
+
+            Path latest = latestSnapshot(Long.MAX_VALUE);
+            long baseSeq = latest != null ? snapshotSeq(latest) : 0L;
+
+            Map<UUID, History> state = latest != null ? readSnapshot(latest, null) : new HashMap<>();
+            long maxSeq = baseSeq;
+            for (Path file : segments) {
+                maxSeq = Math.max(maxSeq, readSegment(file, baseSeq, Long.MAX_VALUE, null, state));
+            }
+            if (maxSeq > baseSeq) {
+                writeSnapshot(state, maxSeq, System.currentTimeMillis());
+            }
+
+            prune(retentionHours);
+        } catch (IOException | RuntimeException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Knowledge journal compaction failed", e);
+        }
+    }
+
+    private void prune(int retentionHours) throws IOException {
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours);
+
+        List<Path> snapshots = listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        // Keep every snapshot inside the window plus the newest one before it
+        int keepFrom = 0;
+        for (int i = 0; i < snapshots.size(); i++) {
+            if (snapshotTime(snapshots.get(i)) <= cutoff) keepFrom = i;
+        }
+        for (int i = 0; i < keepFrom; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        if (snapshots.isEmpty()) return;
+
+        // A segment can go once everything in it is in the oldest kept snapshot and in the player files
+        long keepAfter = Math.min(snapshotSeq(snapshots.get(keepFrom)), checkpointSeq);
+        List<Path> segments = listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            long lastSeqInSegment = segmentFirstSeq(segments.get(i + 1)) - 1L;
+            if (lastSeqInSegment <= keepAfter) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    // --------------------------------------------------
+    //  Point-in-time lookup
+    // --------------------------------------------------
+
+    /** Lookup result; {@code history} is only set for FOUND. */
+    public static final class Lookup {
+        public final LookupStatus status;
+        final History history;
+
+        Lookup(LookupStatus status, History history) {
+            this.status = status;
+            this.history = history;
+        }
+    }
+
+    /**
+     * Rebuild a player's knowledge as of {@code epochMillis}, on the journal thread.
+     */
+    public CompletableFuture<Lookup> lookup(UUID uuid, long epochMillis) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                flush();
+                return lookupNow(uuid, epochMillis);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    private Lookup lookupNow(UUID uuid, long epochMillis) throws IOException {
+        Path base = latestSnapshot(epochMillis);
+        List<Path> segments = listFiles(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+
+        // Without a snapshot we need the journal from its very first record
+        if (base == null && (segments.isEmpty() || segmentFirstSeq(segments.get(0)) > 1L)) {
+            return new Lookup(LookupStatus.TOO_OLD, null);
+        }
+
+        long baseSeq = base != null ? snapshotSeq(base) : 0L;
+        Map<UUID, History> state = base != null ? readSnapshot(base, uuid) : new HashMap<>();
+        for (Path file : segments) {
+            readSegment(file, baseSeq, epochMillis, uuid, state);
+        }
+
+        History history = state.get(uuid);
+        return history != null
+                ? new Lookup(LookupStatus.FOUND, history)
+                : new Lookup(LookupStatus.NO_HISTORY, null);
+    }
+
+    // --------------------------------------------------
+    //  File formats
+    // --------------------------------------------------
+
+    /**
+     * Fold one segment's records into {@code into}.
+     *
+     * @param afterSeq     skip records with a sequence number up to this
+     * @param untilMillis  skip records written after this time
+     * @param only         only this player, or null for everyone
+     * @return the highest sequence number in the segment
+     */
+    private long readSegment(Path file, long afterSeq, long untilMillis, UUID only,
+                             Map<UUID, History> into) throws IOException {
+        long maxSeq = 0L;
+        int knowledgeCount = KnowledgeRegistry.count();
+        CRC32C check = new CRC32C();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int[] ordinals;
+            try {
+                if (in.readInt() != SEGMENT_MAGIC) {
+                    KnowledgeBound.LOGGER.warn("[KnowledgeBound] {} is not a knowledge journal segment, skipping.", file);
+                    return 0L;
+                }
+                in.readShort(); // format version
+                ordinals = readKnowledgeIds(in);
+            } catch (EOFException e) {
+                // Crashed before the header reached the disk: no records; prune removes it later
+                return 0L;
+            }
+
+            byte[] record = new byte[RECORD_BYTES];
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (true) {
+                try {
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break; // end of segment, or a torn final write
+                }
+
+                check.reset();
+                check.update(record, 0, CRC_OFFSET);
+                if ((int) check.getValue() != buffer.getInt(CRC_OFFSET)) {
+                    KnowledgeBound.LOGGER.warn("[KnowledgeBound] Corrupt record in {}, ignoring the rest of the segment.", file);
+                    break;
+                }
+
+                long seq = buffer.getLong(0);
+                long time = buffer.getLong(8);
+                UUID uuid = new UUID(buffer.getLong(16), buffer.getLong(24));
+                int fileOrdinal = buffer.getShort(33);
+                maxSeq = Math.max(maxSeq, seq);
+
+                if (seq <= afterSeq || time > untilMillis) continue;
+                if (only != null && !only.equals(uuid)) continue;
+                if (fileOrdinal < 0 || fileOrdinal >= ordinals.length) continue;
+                int ordinal = ordinals[fileOrdinal];
+                if (ordinal < 0) continue; // knowledge no longer exists
+
+                into.computeIfAbsent(uuid, key -> new History(knowledgeCount))
+                        .set(ordinal, buffer.getInt(35), buffer.getInt(39), buffer.getLong(43), seq);
+            }
+        }
+        return maxSeq;
+    }
+
+    private void writeSnapshot(Map<UUID, History> state, long seq, long epochMillis) throws IOException {
+        Path file = directory.resolve(SNAPSHOT_PREFIX + String.format("%016x-%d", seq, epochMillis) + SNAPSHOT_SUFFIX);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            writeKnowledgeIds(out);
+            out.writeInt(state.size());
+            for (Map.Entry<UUID, History> entry : state.entrySet()) {
+                History history = entry.getValue();
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                for (int ordinal = 0; ordinal < history.seqs.length; ordinal++) {
+                    out.writeLong(history.seqs[ordinal]);
+                    out.writeInt(history.tiers[ordinal]);
+                    out.writeInt(history.minutes[ordinal]);
+                    out.writeLong(history.lastXpMinuteIndex[ordinal]);
+                }
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Map<UUID, History> readSnapshot(Path file, UUID only) throws IOException {
+        Map<UUID, History> state = new HashMap<>();
+        int knowledgeCount = KnowledgeRegistry.count();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(file + " is not a knowledge journal snapshot");
+            }
+            in.readShort(); // format version
+            int[] ordinals = readKnowledgeIds(in);
+
+            int players = in.readInt();
+            for (int p = 0; p < players; p++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                History history = only == null || only.equals(uuid) ? new History(knowledgeCount) : null;
+                for (int fileOrdinal = 0; fileOrdinal < ordinals.length; fileOrdinal++) {
+                    long seq = in.readLong();
+                    int tier = in.readInt();
+                    int minutes = in.readInt();
+                    long lastMinute = in.readLong();
+                    if (history != null && seq > 0L && ordinals[fileOrdinal] >= 0) {
+                        history.set(ordinals[fileOrdinal], tier, minutes, lastMinute, seq);
+                    }
+                }
+                if (history != null) {
+                    state.put(uuid, history);
+                }
+            }
+        }
+        return state;
+    }
+
+    private static void writeKnowledgeIds(DataOutputStream out) throws IOException {
+        int count = KnowledgeRegistry.count();
+        out.writeShort(count);
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            out.writeUTF(KnowledgeRegistry.byOrdinal(ordinal).getIdString());
+        }
+    }
+
+    /** File ordinal → current ordinal (-1 if the knowledge no longer exists). */
+    private static int[] readKnowledgeIds(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        int[] ordinals = new int[count];
+        for (int i = 0; i < count; i++) {
+            KnowledgeDefinition def = KnowledgeRegistry.byIdString(in.readUTF());
+            ordinals[i] = def != null ? def.getOrdinal() : -1;
+        }
+        return ordinals;
+    }
+
+    private long readCheckpoint() {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) return 0L;
+        try (InputStream in = Files.newInputStream(file)) {
+            return new DataInputStream(in).readLong();
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.warn("[KnowledgeBound] Unreadable journal checkpoint, replaying the whole journal.", e);
+            return 0L;
+        }
+    }
+
+    private void writeCheckpoint(long seq) {
+        if (seq <= checkpointSeq) return;
+
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        Path tmp = file.resolveSibling(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(8).putLong(0, seq);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to write journal checkpoint", e);
+            return;
+        }
+
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpointSeq = seq;
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to write journal checkpoint", e);
+        }
+    }
+
+    // --------------------------------------------------
+    //  File names
+    // --------------------------------------------------
+
+    /** Files with this prefix/suffix, oldest first (names sort by sequence number). */
+    private List<Path> listFiles(String prefix, String suffix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return files;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        return files;
+    }
+
+    /** Newest snapshot taken at or before {@code epochMillis}, or null. */
+    private Path latestSnapshot(long epochMillis) throws IOException {
+        Path latest = null;
+        for (Path file : listFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (snapshotTime(file) <= epochMillis) latest = file;
+        }
+        return latest;
+    }
+
+    private long latestSnapshotSeq() throws IOException {
+        Path latest = latestSnapshot(Long.MAX_VALUE);
+        return latest != null ? snapshotSeq(latest) : 0L;
+    }
+
+    private static long segmentFirstSeq(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseUnsignedLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()), 16);
+    }
+
+    private static long snapshotSeq(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseUnsignedLong(name.substring(SNAPSHOT_PREFIX.length(), SNAPSHOT_PREFIX.length() + 16), 16);
+    }
+
+    private static long snapshotTime(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length() + 17, name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+}
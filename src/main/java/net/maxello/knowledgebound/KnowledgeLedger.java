@@ -0,0 +1,68 @@
+package net.maxello.knowledgebound;
+
+/**
+ * Per-player XP actions recorded during a tick and reduced once at the end
+ * of it (see KnowledgeServerState), so a tree-feller breaking thirty logs
+ * costs one minute check, one level-up check and one XP-bar update.
+ *
+ * Not persisted; a fresh ledger is created with every player entity.
+ */
+public final class KnowledgeLedger {
+
+    // Actions per knowledge ordinal this tick
+    private final int[] counts;
+    // Ordinals with a non-zero count, in first-recorded order
+    private final int[] touched;
+    private int touchedCount;
+    // Most recent knowledge; the XP bar shows this one
+    private int lastOrdinal = -1;
+    private boolean queued;
+
+    public KnowledgeLedger() {
+        this(KnowledgeRegistry.count());
+    }
+
+    public KnowledgeLedger(int knowledgeCount) {
+        this.counts = new int[knowledgeCount];
+        this.touched = new int[knowledgeCount];
+    }
+
+    void record(int ordinal) {
+        if (counts[ordinal]++ == 0) {
+            touched[touchedCount++] = ordinal;
+        }
+        lastOrdinal = ordinal;
+    }
+
+    /** Returns true if the ledger wasn't already waiting to be reduced. */
+    boolean markQueued() {
+        if (queued) return false;
+        queued = true;
+        return true;
+    }
+
+    int touchedCount() {
+        return touchedCount;
+    }
+
+    int touchedOrdinal(int index) {
+        return touched[index];
+    }
+
+    int count(int ordinal) {
+        return counts[ordinal];
+    }
+
+    int lastOrdinal() {
+        return lastOrdinal;
+    }
+
+    void clear() {
+        for (int i = 0; i < touchedCount; i++) {
+            counts[touched[i]] = 0;
+        }
+        touchedCount = 0;
+        lastOrdinal = -1;
+        queued = false;
+    }
+}
@@ -0,0 +1,238 @@
+package net.maxello.knowledgebound;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.minecraft.util.Identifier;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on counters and latency histograms for the mod's hooks, shown by /kb stats.
+ *
+ * Recording is a handful of atomic increments into preallocated arrays:
+ * no locks and no allocation, so it can stay enabled in production.
+ * Everything is reset when a server starts.
+ */
+public final class KnowledgeMetrics {
+
+    /** Timed hooks. */
+    public enum Hook {
+        BLOCK_BREAK("block_break"),
+        DAMAGE("damage"),
+        CRAFTING("crafting"),
+        ARMOR_CHECK("armor_check"),
+        NBT_READ("nbt_read"),
+        NBT_WRITE("nbt_write"),
+        STORE_WRITE("store_write"),
+        JOURNAL_FLUSH("journal_flush");
+
+        public final String key;
+
+        Hook(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final Hook[] HOOKS = Hook.values();
+    private static final CraftingKnowledgeRule.Outcome[] OUTCOMES = CraftingKnowledgeRule.Outcome.values();
+
+    private static final LatencyHistogram[] LATENCY = new LatencyHistogram[HOOKS.length];
+    static {
+        for (int i = 0; i < HOOKS.length; i++) {
+            LATENCY[i] = new LatencyHistogram();
+        }
+    }
+
+    // Per knowledge ordinal; crafting is ordinal * OUTCOMES.length + outcome
+    private static AtomicLongArray xpMinutes = new AtomicLongArray(0);
+    private static AtomicLongArray levelUps = new AtomicLongArray(0);
+    private static AtomicLongArray failedGathers = new AtomicLongArray(0);
+    private static AtomicLongArray craftingOutcomes = new AtomicLongArray(0);
+
+    private static volatile long startNanos = System.nanoTime();
+
+    private KnowledgeMetrics() {
+    }
+
+    public static void init() {
+        // The knowledge set is fixed after registration, so size the counters once
+        int knowledgeCount = KnowledgeRegistry.count();
+        xpMinutes = new AtomicLongArray(knowledgeCount);
+        levelUps = new AtomicLongArray(knowledgeCount);
+        failedGathers = new AtomicLongArray(knowledgeCount);
+        craftingOutcomes = new AtomicLongArray(knowledgeCount * OUTCOMES.length);
+
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> reset());
+    }
+
+    // --------------------------------------------------
+    //  Recording (hot path)
+    // --------------------------------------------------
+
+    /** Record one call of a hook that started at {@code startNanos} (System.nanoTime()). */
+    public static void recordSince(Hook hook, long startNanos) {
+        LATENCY[hook.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public static void xpMinute(KnowledgeDefinition def) {
+        increment(xpMinutes, def.getOrdinal());
+    }
+
+    public static void levelUp(KnowledgeDefinition def) {
+        increment(levelUps, def.getOrdinal());
+    }
+
+    public static void failedGather(KnowledgeDefinition def) {
+        increment(failedGathers, def.getOrdinal());
+    }
+
+    public static void craftingOutcome(Identifier knowledgeId, CraftingKnowledgeRule.Outcome outcome) {
+        KnowledgeDefinition def = KnowledgeRegistry.get(knowledgeId);
+        if (def == null) return;
+        increment(craftingOutcomes, def.getOrdinal() * OUTCOMES.length + outcome.ordinal());
+    }
+
+    private static void increment(AtomicLongArray counters, int index) {
+        if (index < counters.length()) {
+            counters.incrementAndGet(index);
+        }
+    }
+
+    // --------------------------------------------------
+    //  Reading (commands, exporters)
+    // --------------------------------------------------
+
+    public static void reset() {
+        for (LatencyHistogram histogram : LATENCY) {
+            histogram.reset();
+        }
+        clear(xpMinutes);
+        clear(levelUps);
+        clear(failedGathers);
+        clear(craftingOutcomes);
+        startNanos = System.nanoTime();
+    }
+
+    /** Seconds since the counters were last reset. */
+    public static double uptimeSeconds() {
+        return (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    }
+
+    public static LatencyHistogram latency(Hook hook) {
+        return LATENCY[hook.ordinal()];
+    }
+
+    public static long xpMinutes(KnowledgeDefinition def) {
+        return get(xpMinutes, def.getOrdinal());
+    }
+
+    public static long levelUps(KnowledgeDefinition def) {
+        return get(levelUps, def.getOrdinal());
+    }
+
+    public static long failedGathers(KnowledgeDefinition def) {
+        return get(failedGathers, def.getOrdinal());
+    }
+
+    public static long craftingOutcomes(KnowledgeDefinition def, CraftingKnowledgeRule.Outcome outcome) {
+        return get(craftingOutcomes, def.getOrdinal() * OUTCOMES.length + outcome.ordinal());
+    }
+
+    private static long get(AtomicLongArray counters, int index) {
+        return index < counters.length() ? counters.get(index) : 0L;
+    }
+
+    private static void clear(AtomicLongArray counters) {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0L);
+        }
+    }
+
+    // --------------------------------------------------
+    //  Histogram
+    // --------------------------------------------------
+
+    /**
+     * Log-linear histogram of nanosecond durations: four buckets per power
+     * of two, so percentiles are accurate to within ~25%.
+     */
+    public static final class LatencyHistogram {
+
+        private static final int SUB_BUCKETS = 4;
+        // Highest bucket starts at 7 << 60 ns, far beyond anything we'll measure
+        private static final int BUCKETS = 62 * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+        private final LongAdder totalNanos = new LongAdder();
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(bucketOf(nanos));
+            max.accumulate(nanos);
+            totalNanos.add(nanos);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0L);
+            }
+            max.reset();
+            totalNanos.reset();
+        }
+
+        public long totalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long count() {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+            return total;
+        }
+
+        public long maxNanos() {
+            return max.get();
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile (0..1), in nanoseconds;
+         * 0 if nothing was recorded.
+         */
+        public long percentileNanos(double quantile) {
+            long total = count();
+            if (total == 0) return 0L;
+
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), maxNanos());
+                }
+            }
+            return maxNanos();
+        }
+
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+            return Math.min((exponent - 1) * SUB_BUCKETS + sub, BUCKETS - 1);
+        }
+
+        private static long lowerBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS + 1;
+            int sub = bucket % SUB_BUCKETS;
+            return (long) (SUB_BUCKETS + sub) << (exponent - 2);
+        }
+
+        private static long upperBoundOf(int bucket) {
+            return bucket + 1 < BUCKETS ? lowerBoundOf(bucket + 1) - 1 : Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package net.maxello.knowledgebound;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Optional Prometheus endpoint (GET /metrics) on the JDK's built-in HttpServer.
+ *
+ * Scrapes are answered on the exporter's own thread. Hook timings and
+ * counters are read straight from {@link KnowledgeMetrics} (atomics); anything
+ * that needs player state is captured on the server thread every few seconds
+ * into an immutable {@link GameSnapshot}, so a scrape never waits on a tick.
+ */
+public final class KnowledgeMetricsExporter {
+
+    private static final int SNAPSHOT_INTERVAL_TICKS = 100;
+
+    private static HttpServer httpServer;
+    private static ExecutorService executor;
+    private static volatile GameSnapshot snapshot = GameSnapshot.EMPTY;
+    private static int ticksSinceSnapshot;
+
+    /** Player-derived values, captured on the server thread. */
+    private static final class GameSnapshot {
+        static final GameSnapshot EMPTY = new GameSnapshot(0, 0, List.of(), new int[0][]);
+
+        final int onlinePlayers;
+        final int saveQueueDepth;
+        final List<KnowledgeDefinition> knowledges;
+        // [ordinal][tier] → online players at that tier
+        final int[][] playersByTier;
+
+        GameSnapshot(int onlinePlayers, int saveQueueDepth,
+                     List<KnowledgeDefinition> knowledges, int[][] playersByTier) {
+            this.onlinePlayers = onlinePlayers;
+            this.saveQueueDepth = saveQueueDepth;
+            this.knowledges = knowledges;
+            this.playersByTier = playersByTier;
+        }
+    }
+
+    private KnowledgeMetricsExporter() {
+    }
+
+    public static void init() {
+        ServerLifecycleEvents.SERVER_STARTED.register(KnowledgeMetricsExporter::start);
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> stop());
+
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            if (httpServer == null) return;
+            if (++ticksSinceSnapshot < SNAPSHOT_INTERVAL_TICKS) return;
+            ticksSinceSnapshot = 0;
+            snapshot = capture(server);
+        });
+    }
+
+    private static void start(MinecraftServer server) {
+        CompiledConfig cfg = CompiledConfig.get();
+        if (cfg.metricsPort <= 0) return;
+
+        try {
+            HttpServer created = HttpServer.create(new InetSocketAddress(cfg.metricsBindAddress, cfg.metricsPort), 0);
+            created.createContext("/metrics", KnowledgeMetricsExporter::handle);
+
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "KnowledgeBound-Metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            created.setExecutor(executor);
+            created.start();
+
+            httpServer = created;
+            snapshot = capture(server);
+            KnowledgeBound.LOGGER.info("[KnowledgeBound] Metrics endpoint listening on http://{}:{}/metrics",
+                    cfg.metricsBindAddress, cfg.metricsPort);
+        } catch (IOException | RuntimeException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Could not start metrics endpoint on {}:{}",
+                    cfg.metricsBindAddress, cfg.metricsPort, e);
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+    private static void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        snapshot = GameSnapshot.EMPTY;
+    }
+
+    private static GameSnapshot capture(MinecraftServer server) {
+        List<KnowledgeDefinition> knowledges = KnowledgeRegistry.all();
+        int[][] playersByTier = new int[knowledges.size()][];
+        for (KnowledgeDefinition def : knowledges) {
+            playersByTier[def.getOrdinal()] = new int[def.getMaxTier() + 1];
+        }
+
+        List<ServerPlayerEntity> players = server.getPlayerManager().getPlayerList();
+        for (ServerPlayerEntity player : players) {
+            PlayerKnowledgeData data = PlayerKnowledgeManager.getData(player);
+            for (int ordinal = 0; ordinal < playersByTier.length; ordinal++) {
+                int[] counts = playersByTier[ordinal];
+                int tier = Math.max(0, Math.min(data.getTier(ordinal), counts.length - 1));
+                counts[tier]++;
+            }
+        }
+
+        KnowledgeServerState state = KnowledgeServerState.get();
+        int queueDepth = state != null ? state.getStore().getQueueDepth() : 0;
+
+        return new GameSnapshot(players.size(), queueDepth, knowledges, playersByTier);
+    }
+
+    // --------------------------------------------------
+    //  HTTP
+    // --------------------------------------------------
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = render(snapshot).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // --------------------------------------------------
+    //  Prometheus text format
+    // --------------------------------------------------
+
+    private static String render(GameSnapshot game) {
+        StringBuilder out = new StringBuilder(4096);
+
+        header(out, "knowledgebound_hook_duration_seconds", "summary",
+                "Time spent in KnowledgeBound hooks (store_write and journal_flush run off the server thread).");
+        for (KnowledgeMetrics.Hook hook : KnowledgeMetrics.Hook.values()) {
+            KnowledgeMetrics.LatencyHistogram latency = KnowledgeMetrics.latency(hook);
+            String labels = "hook=\"" + hook.key + "\"";
+            sample(out, "knowledgebound_hook_duration_seconds", labels + ",quantile=\"0.5\"",
+                    seconds(latency.percentileNanos(0.50)));
+            sample(out, "knowledgebound_hook_duration_seconds", labels + ",quantile=\"0.99\"",
+                    seconds(latency.percentileNanos(0.99)));
+            sample(out, "knowledgebound_hook_duration_seconds_sum", labels, seconds(latency.totalNanos()));
+            sample(out, "knowledgebound_hook_duration_seconds_count", labels, latency.count());
+        }
+
+        header(out, "knowledgebound_xp_minutes_total", "counter", "Knowledge minutes credited.");
+        for (KnowledgeDefinition def : game.knowledges) {
+            sample(out, "knowledgebound_xp_minutes_total", knowledgeLabel(def), KnowledgeMetrics.xpMinutes(def));
+        }
+
+        header(out, "knowledgebound_level_ups_total", "counter", "Knowledge tier level-ups.");
+        for (KnowledgeDefinition def : game.knowledges) {
+            sample(out, "knowledgebound_level_ups_total", knowledgeLabel(def), KnowledgeMetrics.levelUps(def));
+        }
+
+        header(out, "knowledgebound_failed_gathers_total", "counter", "Gathers that yielded no drops.");
+        for (KnowledgeDefinition def : game.knowledges) {
+            sample(out, "knowledgebound_failed_gathers_total", knowledgeLabel(def), KnowledgeMetrics.failedGathers(def));
+        }
+
+        header(out, "knowledgebound_crafts_total", "counter", "Crafting rule outcomes.");
+        for (KnowledgeDefinition def : game.knowledges) {
+            for (CraftingKnowledgeRule.Outcome outcome : CraftingKnowledgeRule.Outcome.values()) {
+                String labels = knowledgeLabel(def) + ",outcome=\"" + outcome.name().toLowerCase(Locale.ROOT) + "\"";
+                sample(out, "knowledgebound_crafts_total", labels, KnowledgeMetrics.craftingOutcomes(def, outcome));
+            }
+        }
+
+        header(out, "knowledgebound_players_by_tier", "gauge", "Online players per knowledge tier.");
+        for (KnowledgeDefinition def : game.knowledges) {
+            int[] counts = game.playersByTier[def.getOrdinal()];
+            for (int tier = 0; tier < counts.length; tier++) {
+                sample(out, "knowledgebound_players_by_tier", knowledgeLabel(def) + ",tier=\"" + tier + "\"", counts[tier]);
+            }
+        }
+
+        header(out, "knowledgebound_online_players", "gauge", "Online players.");
+        sample(out, "knowledgebound_online_players", null, game.onlinePlayers);
+
+        header(out, "knowledgebound_save_queue_depth", "gauge", "Players with a knowledge snapshot waiting to be written.");
+        sample(out, "knowledgebound_save_queue_depth", null, game.saveQueueDepth);
+
+        return out.toString();
+    }
+
+    private static String knowledgeLabel(KnowledgeDefinition def) {
+        return "knowledge=\"" + def.getId().getPath() + "\"";
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,166 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtString;
+
+/**
+ * Encodes {@link PlayerKnowledgeData} to and from NBT.
+ *
+ * Current format (version 5), one compound under "knowledgebound":
+ * <pre>
+ *   v    : int        format version
+ *   ids  : [string]   knowledge id dictionary, one per column entry
+ *   tier : int[]      tier per id
+ *   min  : int[]      minutes towards next tier per id
+ *   last : long[]     last XP minute index per id
+ *   rng  : long       roll stream state (v3+, only once seeded)
+ *   jseq : long       last journal sequence number reflected (v4+, only if journaled)
+ *   sv   : long       network sync version (v5, only if synced)
+ * </pre>
+ * Version 4 is version 5 without "sv", version 3 is version 4 without
+ * "jseq", version 2 is version 3 without "rng". Version 1 (the old
+ * "knowledgebound_knowledge" list of compounds) is still read; all are
+ * rewritten as version 5 on the next save.
+ */
+public final class KnowledgeNbtCodec {
+
+    public static final int VERSION = 5;
+
+    static final String KEY = "knowledgebound";
+    static final String LEGACY_KEY = "knowledgebound_knowledge";
+
+    private KnowledgeNbtCodec() {
+    }
+
+    /** True if {@code root} holds knowledge data in any known format. */
+    public static boolean hasData(NbtCompound root) {
+        return root.contains(KEY, NbtElement.COMPOUND_TYPE)
+                || root.contains(LEGACY_KEY, NbtElement.LIST_TYPE);
+    }
+
+    /** Encode into a new standalone record. */
+    public static NbtCompound encode(PlayerKnowledgeData data) {
+        NbtCompound root = new NbtCompound();
+        encodeInto(data, root);
+        return root;
+    }
+
+    /**
+     * Encoded record for the data's current version, re-encoded only if the
+     * data changed since the last call. The returned record is shared:
+     * don't modify it (copy it first).
+     */
+    public static NbtCompound encodeCached(PlayerKnowledgeData data) {
+        NbtCompound cached = data.getCachedRecord();
+        if (cached == null) {
+            cached = encode(data);
+            data.setCachedRecord(cached);
+        }
+        return cached;
+    }
+
+    public static void encodeInto(PlayerKnowledgeData data, NbtCompound root) {
+        int count = 0;
+        for (int ordinal = 0; ordinal < data.size(); ordinal++) {
+            if (!data.isDefault(ordinal)) count++;
+        }
+
+        NbtList ids = new NbtList();
+        int[] tiers = new int[count];
+        int[] minutes = new int[count];
+        long[] last = new long[count];
+
+        int column = 0;
+        for (int ordinal = 0; ordinal < data.size(); ordinal++) {
+            if (data.isDefault(ordinal)) continue;
+
+            ids.add(NbtString.of(KnowledgeRegistry.byOrdinal(ordinal).getIdString()));
+            tiers[column] = data.getTier(ordinal);
+            minutes[column] = data.getMinutes(ordinal);
+            last[column] = data.getLastXpMinuteIndex(ordinal);
+            column++;
+        }
+
+        NbtCompound tag = new NbtCompound();
+        tag.putInt("v", VERSION);
+        tag.put("ids", ids);
+        tag.putIntArray("tier", tiers);
+        tag.putIntArray("min", minutes);
+        tag.putLongArray("last", last);
+        if (data.isRngSeeded()) {
+            tag.putLong("rng", data.getRngState());
+        }
+        if (data.getJournalSeq() > 0L) {
+            tag.putLong("jseq", data.getJournalSeq());
+        }
+        if (data.getSyncVersion() > 0L) {
+            tag.putLong("sv", data.getSyncVersion());
+        }
+
+        root.put(KEY, tag);
+        root.remove(LEGACY_KEY);
+    }
+
+    /** Decode a record (any version) into {@code data}, replacing its contents. */
+    public static void decode(NbtCompound root, PlayerKnowledgeData data) {
+        data.reset();
+
+        if (root.contains(KEY, NbtElement.COMPOUND_TYPE)) {
+            decodeColumnar(root.getCompound(KEY), data);
+        } else if (root.contains(LEGACY_KEY, NbtElement.LIST_TYPE)) {
+            decodeV1(root.getList(LEGACY_KEY, NbtElement.COMPOUND_TYPE), data);
+        }
+    }
+
+    /** Versions 2 to 5. */
+    private static void decodeColumnar(NbtCompound tag, PlayerKnowledgeData data) {
+        int version = tag.getInt("v");
+        if (version > VERSION) {
+            KnowledgeBound.LOGGER.warn("[KnowledgeBound] Knowledge data has newer format v{} (known: v{}), reading what we can.",
+                    version, VERSION);
+        }
+
+        NbtList ids = tag.getList("ids", NbtElement.STRING_TYPE);
+        int[] tiers = tag.getIntArray("tier");
+        int[] minutes = tag.getIntArray("min");
+        long[] last = tag.getLongArray("last");
+
+        int columns = Math.min(ids.size(), Math.min(tiers.length, Math.min(minutes.length, last.length)));
+        for (int column = 0; column < columns; column++) {
+            KnowledgeDefinition def = KnowledgeRegistry.byIdString(ids.getString(column));
+            if (def == null) continue; // knowledge no longer exists
+
+            int ordinal = def.getOrdinal();
+            data.setTier(ordinal, tiers[column]);
+            data.setMinutes(ordinal, minutes[column]);
+            data.setLastXpMinuteIndex(ordinal, last[column]);
+        }
+
+        if (tag.contains("rng", NbtElement.LONG_TYPE)) {
+            data.setRngState(tag.getLong("rng"));
+        }
+        if (tag.contains("jseq", NbtElement.LONG_TYPE)) {
+            data.setJournalSeq(tag.getLong("jseq"));
+        }
+        if (tag.contains("sv", NbtElement.LONG_TYPE)) {
+            data.setSyncVersion(tag.getLong("sv"));
+        }
+    }
+
+    private static void decodeV1(NbtList list, PlayerKnowledgeData data) {
+        for (int i = 0; i < list.size(); i++) {
+            NbtCompound tag = list.getCompound(i);
+            if (!tag.contains("id")) continue;
+
+            KnowledgeDefinition def = KnowledgeRegistry.byIdString(tag.getString("id"));
+            if (def == null) continue; // knowledge no longer exists
+
+            int ordinal = def.getOrdinal();
+            data.setTier(ordinal, tag.getInt("tier"));
+            data.setMinutes(ordinal, tag.getInt("minutes"));
+            data.setLastXpMinuteIndex(ordinal, tag.getLong("lastMinute"));
+        }
+    }
+}
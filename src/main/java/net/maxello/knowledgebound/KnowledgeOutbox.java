@@ -0,0 +1,62 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+
+/**
+ * Per-player outgoing XP-bar / action-bar updates, coalesced and flushed
+ * once at the end of the server tick (see KnowledgeServerState).
+ *
+ * Not persisted; a fresh outbox is created with every player entity.
+ */
+public final class KnowledgeOutbox {
+
+    // Action bar priorities: when several messages are queued in one tick, the highest wins
+    public static final int PRIORITY_PROGRESS = 0; // "You're learning …"
+    public static final int PRIORITY_RESULT   = 1; // gather / crafting results
+    public static final int PRIORITY_LEVEL_UP = 2;
+    public static final int PRIORITY_WARNING  = 3; // armor restrictions
+
+    private KnowledgeDefinition xpBarKnowledge;
+    private Text actionBar;
+    private int actionBarPriority;
+    private boolean queued;
+
+    void queueXpBar(KnowledgeDefinition def) {
+        this.xpBarKnowledge = def;
+    }
+
+    void queueActionBar(Text message, int priority) {
+        if (this.actionBar == null || priority >= this.actionBarPriority) {
+            this.actionBar = message;
+            this.actionBarPriority = priority;
+        }
+    }
+
+    /** Returns true if the outbox wasn't already waiting for a flush. */
+    boolean markQueued() {
+        if (queued) return false;
+        queued = true;
+        return true;
+    }
+
+    void discard() {
+        queued = false;
+        actionBar = null;
+        xpBarKnowledge = null;
+    }
+
+    void flush(ServerPlayerEntity player) {
+        queued = false;
+
+        if (actionBar != null) {
+            player.sendMessage(actionBar, true);
+            actionBar = null;
+        }
+
+        if (xpBarKnowledge != null) {
+            PlayerKnowledgeManager.applyXpBar(player, xpBarKnowledge);
+            xpBarKnowledge = null;
+        }
+    }
+}
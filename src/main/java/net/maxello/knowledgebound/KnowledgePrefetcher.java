@@ -0,0 +1,83 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads knowledge records on background threads while players are still
+ * logging in, so the server thread doesn't wait on the store when the
+ * player entity is loaded. A login storm after a restart becomes parallel
+ * reads instead of a queue of synchronous ones on the tick.
+ *
+ * Started when the login handshake has identified the player (see
+ * KnowledgeServerState), taken by PlayerKnowledgeManager when the player
+ * entity reads its data.
+ */
+final class KnowledgePrefetcher {
+
+    private static final int LOADER_THREADS = 2;
+    private static final long RETRY_DELAY_MILLIS = 5_000L;
+
+    private final KnowledgeStore store;
+    private final ExecutorService loader;
+    private final Map<UUID, CompletableFuture<NbtCompound>> inFlight = new ConcurrentHashMap<>();
+
+    KnowledgePrefetcher(KnowledgeStore store) {
+        this.store = store;
+        AtomicInteger threads = new AtomicInteger();
+        this.loader = Executors.newFixedThreadPool(LOADER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "KnowledgeBound-Loader-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Start loading this player's record; replaces an earlier prefetch. */
+    void prefetch(UUID uuid) {
+        inFlight.put(uuid, CompletableFuture.supplyAsync(() -> store.acquire(uuid), loader));
+    }
+
+    /**
+     * Load again after a failed prefetch, on the loader threads after a short
+     * delay. Not tracked as a prefetch; the caller keeps the future.
+     */
+    CompletableFuture<NbtCompound> retry(UUID uuid) {
+        return CompletableFuture.supplyAsync(() -> store.acquire(uuid),
+                CompletableFuture.delayedExecutor(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS, loader));
+    }
+
+    /**
+     * Forget a prefetch whose login didn't complete.
+     *
+     * @return the dropped prefetch, or null if none was in flight
+     */
+    CompletableFuture<NbtCompound> cancel(UUID uuid) {
+        return inFlight.remove(uuid);
+    }
+
+    /** Whether a prefetch for this player is waiting to be taken. */
+    boolean isPending(UUID uuid) {
+        return inFlight.containsKey(uuid);
+    }
+
+    /**
+     * The prefetch for this player, or null if none was started. Each prefetch
+     * can only be taken once.
+     */
+    CompletableFuture<NbtCompound> take(UUID uuid) {
+        return inFlight.remove(uuid);
+    }
+
+    void close() {
+        loader.shutdownNow();
+        inFlight.clear();
+    }
+}
@@ -6,7 +6,14 @@ import java.util.*;
 
 public class KnowledgeRegistry {
 
-    private static final Map<Identifier, KnowledgeDefinition> REGISTRY = new HashMap<>();
+    // Replaced as a whole by rebuild() (config reload); never modified in place
+    private static volatile Map<Identifier, KnowledgeDefinition> registry = Map.of();
+
+    // Registration order = ordinal; keep new knowledges at the end so ordinals stay stable
+    private static volatile List<KnowledgeDefinition> byOrdinal = List.of();
+
+    // Same definitions keyed by id string, for decoding stored records without parsing Identifiers
+    private static volatile Map<String, KnowledgeDefinition> byIdString = Map.of();
 
     // Public IDs for material/profession knowledges
     public static final Identifier FORESTRY_ID =
@@ -35,31 +42,69 @@ public class KnowledgeRegistry {
 
     public static void init() {
         KnowledgeBound.LOGGER.info("[KnowledgeBound] Registering knowledges…");
+        rebuild();
+    }
 
-        register(createForestryDefinition());
-        register(createMiningDefinition());
-        register(createDiggingDefinition());
-        register(createFarmingDefinition());
+    /**
+     * (Re)create all definitions from the current config and swap them in.
+     * Registration order is fixed, so ordinals are the same after every rebuild.
+     */
+    public static void rebuild() {
+        List<KnowledgeDefinition> defs = new ArrayList<>();
+
+        register(defs, createForestryDefinition());
+        register(defs, createMiningDefinition());
+        register(defs, createDiggingDefinition());
+        register(defs, createFarmingDefinition());
+
+        register(defs, createToolsmithingDefinition());
+        register(defs, createWeaponsmithingDefinition());
+        register(defs, createArmouringDefinition());
+
+        register(defs, createRangedCombatDefinition());
+        register(defs, createFishingDefinition());
+        register(defs, createMeleeCombatDefinition());
+
+        Map<Identifier, KnowledgeDefinition> map = new HashMap<>();
+        Map<String, KnowledgeDefinition> byString = new HashMap<>();
+        for (KnowledgeDefinition def : defs) {
+            map.put(def.getId(), def);
+            byString.put(def.getIdString(), def);
+        }
 
-        register(createToolsmithingDefinition());
-        register(createWeaponsmithingDefinition());
-        register(createArmouringDefinition());
+        registry = Collections.unmodifiableMap(map);
+        byIdString = Collections.unmodifiableMap(byString);
+        byOrdinal = Collections.unmodifiableList(defs);
 
-        register(createRangedCombatDefinition());
-        register(createFishingDefinition());
-        register(createMeleeCombatDefinition());
+        KnowledgeBoundTextFormatter.rebuild(defs);
     }
 
-    private static void register(KnowledgeDefinition def) {
-        REGISTRY.put(def.getId(), def);
+    private static void register(List<KnowledgeDefinition> defs, KnowledgeDefinition def) {
+        def.assignOrdinal(defs.size());
+        defs.add(def);
     }
 
     public static KnowledgeDefinition get(Identifier id) {
-        return REGISTRY.get(id);
+        return registry.get(id);
+    }
+
+    /** Lookup by {@link KnowledgeDefinition#getIdString()}, as stored on disk; null if unknown. */
+    public static KnowledgeDefinition byIdString(String id) {
+        return byIdString.get(id);
+    }
+
+    public static KnowledgeDefinition byOrdinal(int ordinal) {
+        return byOrdinal.get(ordinal);
+    }
+
+    /** Number of registered knowledges; ordinals run from 0 to count() - 1. */
+    public static int count() {
+        return byOrdinal.size();
     }
 
-    public static Collection<KnowledgeDefinition> all() {
-        return REGISTRY.values();
+    /** All knowledges in ordinal order. */
+    public static List<KnowledgeDefinition> all() {
+        return byOrdinal;
     }
 
     // --------------------------------------------------
@@ -69,7 +114,7 @@ public class KnowledgeRegistry {
     private static Map<Integer, Integer> defaultMinutesPerTier() {
         Map<Integer, Integer> minutesPerTier = new HashMap<>();
 
-        KnowledgeBoundConfig cfg = KnowledgeBoundConfig.INSTANCE;
+        CompiledConfig cfg = CompiledConfig.get();
         double m = cfg.minutesMultiplier;
         int[] base = cfg.baseMinutesPerTier;
 
@@ -268,9 +313,10 @@ public class KnowledgeRegistry {
         int maxTier = 3;
 
         Map<Integer, Integer> minutesPerTier = new HashMap<>();
-        minutesPerTier.put(1, (int) Math.round(60 * KnowledgeBoundConfig.INSTANCE.minutesMultiplier));
-        minutesPerTier.put(2, (int) Math.round(120 * KnowledgeBoundConfig.INSTANCE.minutesMultiplier));
-        minutesPerTier.put(3, (int) Math.round(240 * KnowledgeBoundConfig.INSTANCE.minutesMultiplier));
+        double m = CompiledConfig.get().minutesMultiplier;
+        minutesPerTier.put(1, (int) Math.round(60 * m));
+        minutesPerTier.put(2, (int) Math.round(120 * m));
+        minutesPerTier.put(3, (int) Math.round(240 * m));
 
         Map<Integer, Set<KnowledgeDefinition.ToolTier>> xpToolTiers = new HashMap<>();
         xpToolTiers.put(0, EnumSet.of(KnowledgeDefinition.ToolTier.FISHING_ROD));
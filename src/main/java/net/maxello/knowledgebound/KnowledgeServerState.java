@@ -0,0 +1,429 @@
+package net.maxello.knowledgebound;
+
+import com.mojang.authlib.GameProfile;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerLoginConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.maxello.knowledgebound.mixin.ServerLoginNetworkHandlerAccessor;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.WorldSavePath;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Knowledge state scoped to one running MinecraftServer.
+ *
+ * Created on SERVER_STARTING and dropped on SERVER_STOPPED, so nothing
+ * leaks between singleplayer worlds. Owns the world's knowledge store
+ * and journal. Online players own their state (see KnowledgeHolder); this
+ * only keeps a bounded LRU of recently departed players, so rejoins and
+ * offline rollbacks don't have to read the store, plus
+ * the per-tick queues of players with recorded XP actions and pending
+ * client updates.
+ */
+public final class KnowledgeServerState {
+
+    private static KnowledgeServerState current;
+
+    private final MinecraftServer server;
+    private final KnowledgeStore store;
+    private final KnowledgePrefetcher prefetcher;
+    // Store-wide queries (/kb top), kept off the common pool and the login loaders
+    private final ExecutorService queries = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "KnowledgeBound-Query");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Null if disabled in the config or unreadable at startup
+    private KnowledgeJournal journal;
+    private final Map<UUID, PlayerKnowledgeData> recentlyDeparted;
+    private int ticksSinceSave;
+
+    // Players with XP actions recorded this tick
+    private final List<ServerPlayerEntity> pendingLedgers = new ArrayList<>();
+
+    // Players with pending XP-bar / action-bar updates this tick
+    private final List<ServerPlayerEntity> pendingOutboxes = new ArrayList<>();
+
+    private KnowledgeServerState(MinecraftServer server, int recentCacheSize) {
+        this.server = server;
+        Path root = server.getSavePath(WorldSavePath.ROOT).resolve("knowledgebound");
+        this.store = openStore(root, server);
+        this.prefetcher = new KnowledgePrefetcher(store);
+        if (CompiledConfig.get().journalEnabled) {
+            this.journal = new KnowledgeJournal(root.resolve("journal"));
+        }
+        int maxSize = Math.max(0, recentCacheSize);
+        // Access-ordered LinkedHashMap = simple LRU
+        this.recentlyDeparted = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, PlayerKnowledgeData> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public static void init() {
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> {
+            current = new KnowledgeServerState(server, CompiledConfig.get().recentPlayerCacheSize);
+            current.openJournal();
+        });
+
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            if (current != null && current.server == server) {
+                // Players were saved during shutdown; wait for those writes to land
+                current.prefetcher.close();
+                current.queries.shutdownNow();
+                current.store.close();
+                if (current.journal != null) {
+                    current.journal.close(current.store.getQueueDepth() == 0);
+                }
+                current.recentlyDeparted.clear();
+                current.pendingLedgers.clear();
+                current.pendingOutboxes.clear();
+                current = null;
+            }
+        });
+
+        ServerTickEvents.END_SERVER_TICK.register(server -> {
+            KnowledgeServerState state = current;
+            if (state != null) {
+                // Ledgers first: reducing them queues XP-bar / level-up updates for the flush
+                state.reduceLedgers();
+                state.flushOutboxes();
+                state.tickPeriodicSave();
+            }
+        });
+
+        // The login handshake knows who is joining well before the player entity exists
+        ServerLoginConnectionEvents.QUERY_START.register((handler, server, sender, synchronizer) -> {
+            KnowledgeServerState state = current;
+            if (state != null) {
+                state.onLoginIdentified(((ServerLoginNetworkHandlerAccessor) handler).knowledgebound$getProfile());
+            }
+        });
+
+        ServerLoginConnectionEvents.DISCONNECT.register((handler, server) -> {
+            KnowledgeServerState state = current;
+            GameProfile profile = ((ServerLoginNetworkHandlerAccessor) handler).knowledgebound$getProfile();
+            if (state != null && profile != null && profile.getId() != null) {
+                state.onLoginAborted(profile.getId());
+            }
+        });
+
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+            KnowledgeServerState state = current;
+            if (state != null) {
+                state.onJoin(handler.player);
+            }
+        });
+
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            KnowledgeServerState state = current;
+            if (state != null) {
+                state.onDisconnect(handler.player);
+            }
+        });
+    }
+
+    /**
+     * State for the running server, or null if no server is running.
+     */
+    public static KnowledgeServerState get() {
+        return current;
+    }
+
+    public MinecraftServer getServer() {
+        return server;
+    }
+
+    public KnowledgeStore getStore() {
+        return store;
+    }
+
+    /** {@link KnowledgeStore#top} on the query thread. */
+    public CompletableFuture<List<KnowledgeStore.Ranked>> top(KnowledgeDefinition def, int limit) {
+        return CompletableFuture.supplyAsync(() -> store.top(def, limit), queries);
+    }
+
+    /**
+     * The local store, wrapped for network sync if knowledgeSync is on.
+     */
+    private static KnowledgeStore openStore(Path root, MinecraftServer server) {
+        KnowledgeStore local = openLocalStore(root);
+        KnowledgeSyncStore shared = openSyncStore();
+        if (shared == null) {
+            return local;
+        }
+        return new SyncedKnowledgeStore(local, shared, server, PlayerKnowledgeManager::rebase,
+                CompiledConfig.get().knowledgeSyncIntervalSeconds);
+    }
+
+    /**
+     * The store selected by knowledgeStore; falls back to player files if the database or slot file can't be opened.
+     */
+    private static KnowledgeStore openLocalStore(Path root) {
+        KnowledgeFileStore files = new KnowledgeFileStore(root.resolve("players"));
+        String kind = CompiledConfig.get().knowledgeStore;
+
+        if (kind.equals("mmap")) {
+            try {
+                MappedKnowledgeStore slots = MappedKnowledgeStore.open(root.resolve("knowledge.slots"), files);
+                files.close();
+                return slots;
+            } catch (IOException | RuntimeException e) {
+                KnowledgeBound.LOGGER.error("[KnowledgeBound] Could not open the knowledge slot file, using player files.", e);
+                return files;
+            }
+        }
+        if (!kind.equals("h2")) {
+            return files;
+        }
+
+        try {
+            H2KnowledgeStore database = H2KnowledgeStore.open(root.resolve("knowledge"), files);
+            files.close();
+            return database;
+        } catch (SQLException | RuntimeException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Could not open the knowledge database, using player files.", e);
+            return files;
+        }
+    }
+
+    /**
+     * The shared store selected by knowledgeSync, or null if sync is off or it can't be opened.
+     */
+    private static KnowledgeSyncStore openSyncStore() {
+        CompiledConfig config = CompiledConfig.get();
+        if (config.knowledgeSync.equals("memory")) {
+            return new InMemoryKnowledgeSyncStore();
+        }
+        if (!config.knowledgeSync.equals("directory")) {
+            return null;
+        }
+
+        try {
+            return new DirectoryKnowledgeSyncStore(Path.of(config.knowledgeSyncDirectory));
+        } catch (IOException | InvalidPathException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Could not open the knowledge sync directory {}, sync is off.",
+                    config.knowledgeSyncDirectory, e);
+            return null;
+        }
+    }
+
+    /** The knowledge journal, or null if it's disabled. */
+    public KnowledgeJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Replay journal records that didn't make it into the player files
+     * (crash since the last checkpoint), then start the journal.
+     */
+    private void openJournal() {
+        if (journal == null) return;
+
+        try {
+            Map<UUID, KnowledgeJournal.History> unflushed = journal.recover();
+            Map<UUID, NbtCompound> replayed = new HashMap<>();
+            // The journal continues this server's own copies, not newer ones from the network
+            KnowledgeStore source = store instanceof SyncedKnowledgeStore
+                    ? ((SyncedKnowledgeStore) store).getLocal()
+                    : store;
+            for (Map.Entry<UUID, KnowledgeJournal.History> entry : unflushed.entrySet()) {
+                PlayerKnowledgeData data = new PlayerKnowledgeData();
+                NbtCompound record = source.load(entry.getKey());
+                if (record != null) {
+                    KnowledgeNbtCodec.decode(record, data);
+                }
+                if (entry.getValue().replayOnto(data)) {
+                    replayed.put(entry.getKey(), KnowledgeNbtCodec.encode(data));
+                }
+            }
+            if (!replayed.isEmpty()) {
+                store.saveAll(replayed);
+                KnowledgeBound.LOGGER.info("[KnowledgeBound] Restored knowledge of {} players from the journal.", replayed.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Could not read the knowledge journal, running without it.", e);
+            journal.close(false);
+            journal = null;
+            return;
+        }
+
+        checkpointJournal();
+        CompiledConfig cfg = CompiledConfig.get();
+        journal.start(cfg.journalFlushIntervalMillis, cfg.journalSnapshotIntervalMinutes, cfg.journalRetentionHours);
+    }
+
+    /**
+     * Once every save queued so far is on disk, the player files contain all
+     * journal records up to now.
+     */
+    private void checkpointJournal() {
+        KnowledgeJournal journal = this.journal;
+        if (journal == null) return;
+        long seq = journal.lastSeq();
+        store.whenFlushed(() -> journal.checkpoint(seq));
+    }
+
+    /**
+     * Save online players' knowledge more often than vanilla autosaves.
+     * Snapshots are cheap; the actual file writes happen off-thread.
+     */
+    private void tickPeriodicSave() {
+        int intervalTicks = CompiledConfig.get().knowledgeSaveIntervalSeconds * 20;
+        if (intervalTicks <= 0) return;
+
+        if (++ticksSinceSave < intervalTicks) return;
+        ticksSinceSave = 0;
+
+        for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+            PlayerKnowledgeManager.save(player);
+        }
+        checkpointJournal();
+    }
+
+    void queueLedger(ServerPlayerEntity player) {
+        pendingLedgers.add(player);
+    }
+
+    void queueOutbox(ServerPlayerEntity player) {
+        pendingOutboxes.add(player);
+    }
+
+    private void reduceLedgers() {
+        if (pendingLedgers.isEmpty()) return;
+
+        for (int i = 0; i < pendingLedgers.size(); i++) {
+            ServerPlayerEntity player = pendingLedgers.get(i);
+            if (player.isDisconnected() || player.isRemoved()) {
+                ((KnowledgeHolder) player).knowledgebound$getLedger().clear();
+                continue;
+            }
+            PlayerKnowledgeManager.reduceLedger(player);
+        }
+        pendingLedgers.clear();
+    }
+
+    private void flushOutboxes() {
+        if (pendingOutboxes.isEmpty()) return;
+
+        for (int i = 0; i < pendingOutboxes.size(); i++) {
+            ServerPlayerEntity player = pendingOutboxes.get(i);
+            KnowledgeOutbox outbox = ((KnowledgeHolder) player).knowledgebound$getOutbox();
+            if (player.isDisconnected() || player.isRemoved()) {
+                outbox.discard();
+                continue;
+            }
+            outbox.flush(player);
+        }
+        pendingOutboxes.clear();
+    }
+
+    KnowledgePrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    private void onLoginIdentified(GameProfile profile) {
+        if (profile == null || profile.getId() == null) return;
+
+        // Still online (duplicate login): its final save hasn't happened yet,
+        // so a prefetch now would read stale data. Load synchronously later.
+        if (server.getPlayerManager().getPlayer(profile.getId()) != null) return;
+        // Rejoining soon after leaving: loaded from the cache instead
+        if (getRecentlyDeparted(profile.getId()) != null) return;
+
+        prefetcher.prefetch(profile.getId());
+    }
+
+    private void onLoginAborted(UUID uuid) {
+        CompletableFuture<NbtCompound> prefetch = prefetcher.cancel(uuid);
+        if (prefetch != null) {
+            // The load acquired the player from the store; hand them back once it's done
+            prefetch.whenCompleteAsync((record, error) -> releaseIfGone(uuid), server);
+        }
+    }
+
+    /**
+     * Release a player acquired by a load nobody is going to use, unless
+     * they're online again or another prefetch for them is under way.
+     * Server thread only.
+     */
+    void releaseIfGone(UUID uuid) {
+        if (prefetcher.isPending(uuid) || server.getPlayerManager().getPlayer(uuid) != null) return;
+        store.release(uuid);
+    }
+
+    private void onJoin(ServerPlayerEntity player) {
+        // The live entity is authoritative again
+        recentlyDeparted.remove(player.getUuid());
+        PlayerKnowledgeManager.journalBaseline(player);
+    }
+
+    private void onDisconnect(ServerPlayerEntity player) {
+        // Hand the final state (with the roll position) over now, e.g. so network sync publishes it right away
+        PlayerKnowledgeManager.getData(player).flushRolls();
+        PlayerKnowledgeManager.save(player);
+        store.release(player.getUuid());
+
+        if (CompiledConfig.get().recentPlayerCacheSize <= 0) {
+            return;
+        }
+        if (PlayerKnowledgeManager.getData(player).isLoading()) {
+            return; // nothing real to cache yet
+        }
+
+        // Saved just above; keep a detached copy for a quick rejoin or offline rollback
+        PlayerKnowledgeData snapshot = new PlayerKnowledgeData();
+        snapshot.copyFrom(PlayerKnowledgeManager.getData(player));
+        recentlyDeparted.put(player.getUuid(), snapshot);
+    }
+
+    /**
+     * Cached knowledge of a recently disconnected player (same as what was
+     * saved when they left), or null if not cached. Always null with network
+     * sync, since another server may have changed it since. Don't modify the
+     * returned data.
+     */
+    public PlayerKnowledgeData getRecentlyDeparted(UUID uuid) {
+        if (store instanceof SyncedKnowledgeStore) return null;
+        return recentlyDeparted.get(uuid);
+    }
+
+    /** Replace the cached copy after an offline change, if the player is cached. */
+    void updateRecentlyDeparted(UUID uuid, PlayerKnowledgeData data) {
+        PlayerKnowledgeData cached = recentlyDeparted.get(uuid);
+        if (cached != null) {
+            cached.copyFrom(data);
+        }
+    }
+
+    /** Estimated heap used by the recently-departed cache, in bytes. */
+    public long getRecentlyDepartedSizeInBytes() {
+        long bytes = 0;
+        for (PlayerKnowledgeData data : recentlyDeparted.values()) {
+            bytes += data.estimateSizeInBytes();
+        }
+        return bytes;
+    }
+
+    public int getRecentlyDepartedCount() {
+        return recentlyDeparted.size();
+    }
+}
@@ -0,0 +1,88 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Where players' knowledge records (see {@link KnowledgeNbtCodec}) live
+ * between sessions. Selected by the knowledgeStore config option:
+ * {@link KnowledgeFileStore} ("file", default), {@link H2KnowledgeStore} ("h2")
+ * or {@link MappedKnowledgeStore} ("mmap").
+ *
+ * Records are passed as immutable NBT snapshots captured on the server
+ * thread; implementations write them on their own thread.
+ */
+public interface KnowledgeStore {
+
+    /** One row of a {@link #top} query. */
+    final class Ranked {
+        public final UUID uuid;
+        public final int tier;
+        public final int minutes;
+
+        public Ranked(UUID uuid, int tier, int minutes) {
+            this.uuid = uuid;
+            this.tier = tier;
+            this.minutes = minutes;
+        }
+    }
+
+    /**
+     * Reads a player's knowledge record, or returns null if there is none yet.
+     * A snapshot that is still waiting to be written wins over the stored one.
+     */
+    NbtCompound load(UUID uuid);
+
+    /**
+     * {@link #load} for a player who is joining. Stores that share records
+     * with other servers start tracking the player here, until {@link #release}.
+     */
+    default NbtCompound acquire(UUID uuid) {
+        return load(uuid);
+    }
+
+    /**
+     * Queue a snapshot for writing. The caller must not touch {@code snapshot} afterwards.
+     */
+    void save(UUID uuid, NbtCompound snapshot);
+
+    /**
+     * Queue many snapshots at once (e.g. journal replay, imports). The caller
+     * must not touch the snapshots afterwards.
+     */
+    default void saveAll(Map<UUID, NbtCompound> snapshots) {
+        for (Map.Entry<UUID, NbtCompound> entry : snapshots.entrySet()) {
+            save(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * The player left and their final snapshot was just saved. Stores that
+     * share records with other servers publish it now; others ignore it.
+     */
+    default void release(UUID uuid) {
+    }
+
+    /**
+     * Players with the highest tier (then minutes) in a knowledge, across
+     * everyone ever stored. May block on IO; don't call it on the server thread.
+     */
+    List<Ranked> top(KnowledgeDefinition def, int limit);
+
+    /**
+     * Run {@code action} on the writer thread once every save queued so far
+     * has been handled, but only if all of them were written successfully.
+     */
+    void whenFlushed(Runnable action);
+
+    /** Number of players with a snapshot waiting to be written. */
+    int getQueueDepth();
+
+    /**
+     * Finish all queued writes and release the store.
+     */
+    void close();
+}
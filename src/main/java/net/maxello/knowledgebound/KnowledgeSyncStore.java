@@ -0,0 +1,43 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Network-wide home of players' knowledge records, shared by every backend
+ * behind a proxy (see SyncedKnowledgeStore). Each record carries a version
+ * that goes up by one with every accepted write. Selected by the
+ * knowledgeSync config option: {@link DirectoryKnowledgeSyncStore}
+ * ("directory") or {@link InMemoryKnowledgeSyncStore} ("memory").
+ *
+ * Reads happen on the login prefetch threads, writes on the sync thread;
+ * both may block on IO.
+ */
+public interface KnowledgeSyncStore {
+
+    /** A record and the version it was stored as. */
+    final class Versioned {
+        public final NbtCompound record;
+        public final long version;
+
+        public Versioned(NbtCompound record, long version) {
+            this.record = record;
+            this.version = version;
+        }
+    }
+
+    /** The player's current record, or null if none was ever published. */
+    Versioned get(UUID uuid) throws IOException;
+
+    /**
+     * Store {@code record} as version {@code expectedVersion + 1}, but only if
+     * the stored version is still {@code expectedVersion} (0 = no record yet).
+     *
+     * @return false if someone else wrote in between; nothing was stored
+     */
+    boolean compareAndSet(UUID uuid, long expectedVersion, NbtCompound record) throws IOException;
+
+    void close();
+}
@@ -0,0 +1,676 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Knowledge store in one memory-mapped file (&lt;world&gt;/knowledgebound/knowledge.slots)
+ * with a fixed-size slot per player.
+ *
+ * Knowledge records are small and fixed-shape, so each player gets a slot
+ * holding one column (tier, minutes, last XP minute) per knowledge; a
+ * UUID → slot index is built when the file is opened. Reads (offline
+ * lookups, /kb top) come straight from the mapped pages instead of
+ * decompressing NBT files, and the writer thread updates slots in place.
+ *
+ * Layout:
+ * <pre>
+ *   header : magic, format, header size, column capacity, column count, slot capacity,
+ *            then the knowledge id of each column (short length + UTF-8)
+ *   slot   : flags, checksum, uuid, roll stream, journal seq, sync version,
+ *            then column capacity × (tier, minutes, last + 1)
+ * </pre>
+ * Format 1 had no sync version, format 2 no checksum. Columns are added
+ * when new knowledge appears; if the file runs out of them (or is an older
+ * format) it is rewritten on the next start. Slots are appended and the
+ * mapping grows by doubling.
+ *
+ * Pages are forced to disk after every write batch, but the OS may write
+ * them back in any order before that, so a crash can leave a slot half
+ * written. The checksum catches that when the file is opened: the slot's
+ * journal seq is reset so the whole journal since the checkpoint is
+ * replayed onto it (see KnowledgeJournal). Its unchanged knowledge was
+ * rewritten with the same values and everything that changed is still in
+ * the journal, because the checkpoint only moves once a batch was forced.
+ * A new slot whose flags never reached the disk is left unused and the
+ * player's record is rebuilt from the journal the same way.
+ */
+public final class MappedKnowledgeStore implements KnowledgeStore {
+
+    private static final int MAGIC = 0x4B42534C; // "KBSL"
+    private static final int FORMAT = 3;
+
+    // Header fields
+    private static final int H_MAGIC = 0;
+    private static final int H_FORMAT = 4;
+    private static final int H_HEADER_SIZE = 8;
+    private static final int H_COLUMN_CAPACITY = 12;
+    private static final int H_COLUMN_COUNT = 16;
+    private static final int H_SLOT_CAPACITY = 20;
+    private static final int H_DICTIONARY = 32;
+
+    // Slot fields
+    private static final int S_FLAGS = 0;
+    private static final int S_CHECK = 4;
+    private static final int S_UUID = 8;
+    private static final int S_RNG = 24;
+    private static final int S_JSEQ = 32;
+    private static final int S_SYNC = 40;
+    private static final int S_COLUMNS = 48;
+    private static final int S_COLUMNS_V1 = 40;
+    private static final int COLUMN_SIZE = 16;
+
+    private static final byte FLAG_USED = 1;
+    private static final byte FLAG_RNG = 2;
+
+    private static final int MAX_ID_BYTES = 128;
+    private static final int MIN_COLUMNS = 64;
+    private static final int INITIAL_SLOTS = 256;
+    private static final int PAGE = 4096;
+
+    private final FileChannel channel;
+    private final int headerSize;
+    private final int columnCapacity;
+    private final int slotSize;
+
+    // Writers hold the write lock; readers read optimistically and retry under the read lock
+    private final StampedLock lock = new StampedLock();
+    private volatile MappedByteBuffer buffer; // replaced when the file grows
+    private int slotCapacity;                 // writer only
+    private volatile int slotCount;
+
+    private final Map<UUID, Integer> slots = new ConcurrentHashMap<>();
+    private final Map<String, Integer> columns = new ConcurrentHashMap<>();
+    private int columnCount;                  // writer only
+    private int dictionaryEnd;                // writer only
+
+    private final ExecutorService writer;
+
+    // Latest not-yet-written snapshot per player; never modified after being put here
+    private final Map<UUID, NbtCompound> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    private MappedKnowledgeStore(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+
+        if (buffer.capacity() < H_DICTIONARY || buffer.getInt(H_MAGIC) != MAGIC) {
+            throw new IOException("Not a knowledge slot file");
+        }
+        if (buffer.getInt(H_FORMAT) != FORMAT) {
+            throw new IOException("Unknown knowledge slot file format " + buffer.getInt(H_FORMAT));
+        }
+
+        this.headerSize = buffer.getInt(H_HEADER_SIZE);
+        this.columnCapacity = buffer.getInt(H_COLUMN_CAPACITY);
+        this.slotSize = S_COLUMNS + columnCapacity * COLUMN_SIZE;
+        this.slotCapacity = buffer.getInt(H_SLOT_CAPACITY);
+        if ((long) headerSize + (long) slotCapacity * slotSize > buffer.capacity()) {
+            throw new IOException("Knowledge slot file is truncated");
+        }
+
+        List<String> ids = readDictionary(buffer);
+        for (int column = 0; column < ids.size(); column++) {
+            columns.put(ids.get(column), column);
+        }
+        this.columnCount = ids.size();
+        this.dictionaryEnd = dictionaryEnd(ids);
+
+        // Pages reach the disk in any order, so a crash can leave unused gaps: scan every slot
+        int count = 0;
+        for (int slot = 0; slot < slotCapacity; slot++) {
+            int base = slotBase(slot);
+            if ((buffer.get(base + S_FLAGS) & FLAG_USED) == 0) continue;
+
+            UUID uuid = new UUID(buffer.getLong(base + S_UUID), buffer.getLong(base + S_UUID + 8));
+            if (buffer.getInt(base + S_CHECK) != checksum(buffer, base, slotSize)) {
+                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Knowledge slot of {} was torn by a crash, replaying the journal onto it.",
+                        uuid);
+                buffer.putLong(base + S_JSEQ, 0L);
+                buffer.putInt(base + S_CHECK, checksum(buffer, base, slotSize));
+            }
+            slots.put(uuid, slot);
+            count = slot + 1;
+        }
+        this.slotCount = count;
+
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KnowledgeBound-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open (or create) the slot file, importing {@code legacyFiles} if it's new.
+     */
+    public static MappedKnowledgeStore open(Path file, KnowledgeFileStore legacyFiles) throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0L) {
+            create(file, legacyFiles);
+        } else {
+            rewriteIfNeeded(file);
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new MappedKnowledgeStore(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Build the file with every player file imported under a temp name and
+     * only then rename it into place, so an interrupted import leaves no slot
+     * file behind and is simply redone on the next start.
+     */
+    private static void create(Path file, KnowledgeFileStore legacyFiles) throws IOException {
+        Map<UUID, NbtCompound> records = new HashMap<>();
+        if (legacyFiles != null) {
+            legacyFiles.forEachRecord(records::put);
+        }
+
+        List<String> ids = new ArrayList<>();
+        for (KnowledgeDefinition def : KnowledgeRegistry.all()) {
+            ids.add(def.getIdString());
+        }
+        int columnCapacity = columnCapacityFor(ids.size());
+        int slotCapacity = INITIAL_SLOTS;
+        while (slotCapacity < records.size()) {
+            slotCapacity *= 2;
+        }
+        int slotSize = S_COLUMNS + columnCapacity * COLUMN_SIZE;
+
+        // Columns follow registry order, so ordinal = column
+        int[] columnByOrdinal = new int[ids.size()];
+        Arrays.setAll(columnByOrdinal, ordinal -> ordinal);
+
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = header(columnCapacity, ids, slotCapacity);
+            writeFully(out, header, 0);
+
+            ByteBuffer slot = ByteBuffer.allocate(slotSize);
+            PlayerKnowledgeData data = new PlayerKnowledgeData();
+            int index = 0;
+            for (Map.Entry<UUID, NbtCompound> entry : records.entrySet()) {
+                KnowledgeNbtCodec.decode(entry.getValue(), data);
+                Arrays.fill(slot.array(), (byte) 0);
+                putSlot(slot, 0, slotSize, entry.getKey(), data, columnByOrdinal);
+                writeFully(out, slot, (long) header.capacity() + (long) index * slotSize);
+                index++;
+            }
+
+            long size = (long) header.capacity() + (long) slotCapacity * slotSize;
+            writeFully(out, ByteBuffer.allocate(1), size - 1); // sparse, reads as zero
+            out.force(true);
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (!records.isEmpty()) {
+            KnowledgeBound.LOGGER.info("[KnowledgeBound] Imported knowledge of {} players into the slot file.", records.size());
+        }
+    }
+
+    // --------------------------------------------------
+    //  KnowledgeStore
+    // --------------------------------------------------
+
+    @Override
+    public NbtCompound load(UUID uuid) {
+        NbtCompound queued = pending.get(uuid);
+        if (queued != null) {
+            return queued.copy();
+        }
+
+        Integer slot = slots.get(uuid);
+        if (slot == null) {
+            return null;
+        }
+
+        PlayerKnowledgeData data = new PlayerKnowledgeData();
+        long stamp = lock.tryOptimisticRead();
+        readSlot(buffer, slot, data);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                readSlot(buffer, slot, data);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return KnowledgeNbtCodec.encode(data);
+    }
+
+    @Override
+    public void save(UUID uuid, NbtCompound snapshot) {
+        pending.put(uuid, snapshot);
+        scheduleDrain();
+    }
+
+    @Override
+    public void saveAll(Map<UUID, NbtCompound> snapshots) {
+        pending.putAll(snapshots);
+        scheduleDrain();
+    }
+
+    /**
+     * Scans one column of every slot; nothing is decoded. Snapshots still
+     * queued for writing aren't included.
+     */
+    @Override
+    public List<Ranked> top(KnowledgeDefinition def, int limit) {
+        List<Ranked> ranked = new ArrayList<>();
+        Integer column = columns.get(def.getIdString());
+        if (column == null) return ranked;
+
+        long stamp = lock.readLock();
+        try {
+            MappedByteBuffer buf = buffer;
+            for (int slot = 0, count = slotCount; slot < count; slot++) {
+                int base = slotBase(slot);
+                if ((buf.get(base + S_FLAGS) & FLAG_USED) == 0) continue; // gap left by a crash
+                int at = base + S_COLUMNS + column * COLUMN_SIZE;
+                int tier = buf.getInt(at);
+                int minutes = buf.getInt(at + 4);
+                if (tier == 0 && minutes == 0 && buf.getLong(at + 8) == 0L) continue; // default
+
+                UUID uuid = new UUID(buf.getLong(base + S_UUID), buf.getLong(base + S_UUID + 8));
+                ranked.add(new Ranked(uuid, tier, minutes));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        ranked.sort(Comparator.comparingInt((Ranked r) -> r.tier)
+                .thenComparingInt(r -> r.minutes)
+                .reversed());
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+
+    @Override
+    public void whenFlushed(Runnable action) {
+        writer.execute(() -> {
+            drain();
+            if (pending.isEmpty()) {
+                action.run();
+            }
+        });
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Knowledge writer did not finish in time.");
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything still queued (e.g. after a failed write) gets one last synchronous try
+        drain();
+
+        try {
+            channel.close(); // the mapping stays valid until it's collected
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to close the knowledge slot file.", e);
+        }
+    }
+
+    // --------------------------------------------------
+    //  Writer
+    // --------------------------------------------------
+
+    private void scheduleDrain() {
+        // One drain picks up everything queued until it runs
+        if (drainQueued.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        drainQueued.set(false);
+        if (pending.isEmpty()) return;
+
+        Map<UUID, NbtCompound> batch = new HashMap<>(pending);
+
+        KnowledgeJfrEvents.PersistenceEvent event = new KnowledgeJfrEvents.PersistenceEvent();
+        event.begin();
+        boolean written = false;
+
+        long start = System.nanoTime();
+        try {
+            writeBatch(batch);
+            // Only drop what wasn't replaced by a newer snapshot in the meantime
+            for (Map.Entry<UUID, NbtCompound> entry : batch.entrySet()) {
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+            written = true;
+        } catch (IOException | RuntimeException e) {
+            KnowledgeBound.LOGGER.error("[KnowledgeBound] Failed to write knowledge of {} players to the slot file.",
+                    batch.size(), e);
+        } finally {
+            KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.STORE_WRITE, start);
+
+            if (event.shouldCommit()) {
+                event.records = batch.size();
+                event.operation = KnowledgeJfrEvents.PersistenceEvent.WRITE;
+                event.succeeded = written;
+                event.commit();
+            }
+        }
+    }
+
+    /** Write all records into their slots, then force the pages to disk. */
+    private void writeBatch(Map<UUID, NbtCompound> records) throws IOException {
+        PlayerKnowledgeData data = new PlayerKnowledgeData();
+        int[] columnByOrdinal = new int[data.size()];
+
+        long stamp = lock.writeLock();
+        try {
+            // Resolve columns first so a full file fails before any slot is touched
+            for (int ordinal = 0; ordinal < columnByOrdinal.length; ordinal++) {
+                columnByOrdinal[ordinal] = columnFor(KnowledgeRegistry.byOrdinal(ordinal).getIdString());
+            }
+
+            for (Map.Entry<UUID, NbtCompound> entry : records.entrySet()) {
+                KnowledgeNbtCodec.decode(entry.getValue(), data);
+                writeSlot(entry.getKey(), data, columnByOrdinal);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        buffer.force();
+    }
+
+    private void writeSlot(UUID uuid, PlayerKnowledgeData data, int[] columnByOrdinal) throws IOException {
+        Integer existing = slots.get(uuid);
+        int slot = existing != null ? existing : slotCount;
+        if (existing == null) {
+            ensureSlotCapacity(slot + 1);
+        }
+
+        putSlot(buffer, slotBase(slot), slotSize, uuid, data, columnByOrdinal);
+
+        if (existing == null) {
+            slots.put(uuid, slot);
+            slotCount = slot + 1;
+        }
+    }
+
+    private static void putSlot(ByteBuffer buf, int base, int slotSize, UUID uuid, PlayerKnowledgeData data,
+                                int[] columnByOrdinal) {
+        buf.putLong(base + S_UUID, uuid.getMostSignificantBits());
+        buf.putLong(base + S_UUID + 8, uuid.getLeastSignificantBits());
+        buf.putLong(base + S_RNG, data.getRngState());
+        buf.putLong(base + S_JSEQ, data.getJournalSeq());
+        buf.putLong(base + S_SYNC, data.getSyncVersion());
+
+        for (int ordinal = 0; ordinal < columnByOrdinal.length; ordinal++) {
+            int at = base + S_COLUMNS + columnByOrdinal[ordinal] * COLUMN_SIZE;
+            buf.putInt(at, data.getTier(ordinal));
+            buf.putInt(at + 4, data.getMinutes(ordinal));
+            buf.putLong(at + 8, data.getLastXpMinuteIndex(ordinal) + 1L);
+        }
+
+        buf.put(base + S_FLAGS, (byte) (FLAG_USED | (data.isRngSeeded() ? FLAG_RNG : 0)));
+        buf.putInt(base + S_CHECK, checksum(buf, base, slotSize));
+    }
+
+    /** CRC32C of the flags and everything after the checksum field. */
+    private static int checksum(ByteBuffer buf, int base, int slotSize) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.get(base + S_FLAGS));
+        crc.update(buf.slice(base + S_UUID, slotSize - S_UUID));
+        return (int) crc.getValue();
+    }
+
+    /** Column of a knowledge, adding it to the dictionary if it's new. */
+    private int columnFor(String id) throws IOException {
+        Integer column = columns.get(id);
+        if (column != null) return column;
+
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        if (columnCount >= columnCapacity) {
+            throw new IOException("No free knowledge column for " + id + "; restart the server to grow the slot file");
+        }
+        if (bytes.length > MAX_ID_BYTES) {
+            throw new IOException("Knowledge id too long for the slot file: " + id);
+        }
+
+        MappedByteBuffer buf = buffer;
+        buf.putShort(dictionaryEnd, (short) bytes.length);
+        buf.put(dictionaryEnd + 2, bytes);
+        dictionaryEnd += 2 + bytes.length;
+
+        // Existing slots read as default for the new column: all zero
+        int added = columnCount++;
+        buf.putInt(H_COLUMN_COUNT, columnCount);
+        columns.put(id, added);
+        return added;
+    }
+
+    private void ensureSlotCapacity(int needed) throws IOException {
+        if (needed <= slotCapacity) return;
+
+        int capacity = slotCapacity;
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        long size = (long) headerSize + (long) capacity * slotSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Knowledge slot file would exceed 2 GiB");
+        }
+
+        buffer.force();
+        MappedByteBuffer grown = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        grown.putInt(H_SLOT_CAPACITY, capacity);
+        buffer = grown;
+        slotCapacity = capacity;
+    }
+
+    // --------------------------------------------------
+    //  Layout
+    // --------------------------------------------------
+
+    private int slotBase(int slot) {
+        return headerSize + slot * slotSize;
+    }
+
+    private void readSlot(MappedByteBuffer buf, int slot, PlayerKnowledgeData data) {
+        data.reset();
+
+        int base = slotBase(slot);
+        if ((buf.get(base + S_FLAGS) & FLAG_RNG) != 0) {
+            data.setRngState(buf.getLong(base + S_RNG));
+        }
+        data.setJournalSeq(buf.getLong(base + S_JSEQ));
+        data.setSyncVersion(buf.getLong(base + S_SYNC));
+
+        for (int ordinal = 0; ordinal < data.size(); ordinal++) {
+            Integer column = columns.get(KnowledgeRegistry.byOrdinal(ordinal).getIdString());
+            if (column == null) continue; // never stored
+
+            int at = base + S_COLUMNS + column * COLUMN_SIZE;
+            data.setTier(ordinal, buf.getInt(at));
+            data.setMinutes(ordinal, buf.getInt(at + 4));
+            data.setLastXpMinuteIndex(ordinal, buf.getLong(at + 8) - 1L);
+        }
+    }
+
+    private static int columnCapacityFor(int knowledgeCount) {
+        return Math.max(MIN_COLUMNS, knowledgeCount * 2);
+    }
+
+    private static int headerSizeFor(int columnCapacity) {
+        int size = H_DICTIONARY + columnCapacity * (2 + MAX_ID_BYTES);
+        return (size + PAGE - 1) / PAGE * PAGE;
+    }
+
+    private static List<String> readDictionary(ByteBuffer header) {
+        int count = header.getInt(H_COLUMN_COUNT);
+        List<String> ids = new ArrayList<>(count);
+        int at = H_DICTIONARY;
+        for (int column = 0; column < count; column++) {
+            byte[] bytes = new byte[header.getShort(at)];
+            header.get(at + 2, bytes);
+            ids.add(new String(bytes, StandardCharsets.UTF_8));
+            at += 2 + bytes.length;
+        }
+        return ids;
+    }
+
+    private static int dictionaryEnd(List<String> ids) {
+        int at = H_DICTIONARY;
+        for (String id : ids) {
+            at += 2 + id.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return at;
+    }
+
+    private static ByteBuffer header(int columnCapacity, List<String> ids, int slotCapacity) {
+        ByteBuffer header = ByteBuffer.allocate(headerSizeFor(columnCapacity));
+        header.putInt(H_MAGIC, MAGIC);
+        header.putInt(H_FORMAT, FORMAT);
+        header.putInt(H_HEADER_SIZE, header.capacity());
+        header.putInt(H_COLUMN_CAPACITY, columnCapacity);
+        header.putInt(H_COLUMN_COUNT, ids.size());
+        header.putInt(H_SLOT_CAPACITY, slotCapacity);
+
+        int at = H_DICTIONARY;
+        for (String id : ids) {
+            byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            header.putShort(at, (short) bytes.length);
+            header.put(at + 2, bytes);
+            at += 2 + bytes.length;
+        }
+        return header;
+    }
+
+    /**
+     * Before mapping: if the file is an older format, or the registry has more new
+     * knowledge than the file has free columns, copy it into a new file in
+     * the current format with room for them. Done with plain reads and
+     * writes so the old file is never mapped while replaced.
+     */
+    private static void rewriteIfNeeded(Path file) throws IOException {
+        ByteBuffer header;
+        int format;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer fields = ByteBuffer.allocate(H_DICTIONARY);
+            readFully(in, fields, 0);
+            format = fields.getInt(H_FORMAT);
+            if (fields.getInt(H_MAGIC) != MAGIC || format < 1 || format > FORMAT) {
+                return; // rejected when it's opened
+            }
+            header = ByteBuffer.allocate(fields.getInt(H_HEADER_SIZE));
+            readFully(in, header, 0);
+        }
+
+        int oldCapacity = header.getInt(H_COLUMN_CAPACITY);
+        List<String> ids = readDictionary(header);
+        int missing = 0;
+        for (KnowledgeDefinition def : KnowledgeRegistry.all()) {
+            if (!ids.contains(def.getIdString())) missing++;
+        }
+        if (format == FORMAT && ids.size() + missing <= oldCapacity) return;
+
+        int newCapacity = Math.max(oldCapacity, columnCapacityFor(ids.size() + missing));
+        int slotCapacity = header.getInt(H_SLOT_CAPACITY);
+        int oldColumns = format == 1 ? S_COLUMNS_V1 : S_COLUMNS;
+        int oldSlotSize = oldColumns + oldCapacity * COLUMN_SIZE;
+        int newSlotSize = S_COLUMNS + newCapacity * COLUMN_SIZE;
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(tmp,
+                     StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer newHeader = header(newCapacity, ids, slotCapacity);
+            writeFully(out, newHeader, 0);
+
+            ByteBuffer oldSlot = ByteBuffer.allocate(oldSlotSize);
+            ByteBuffer newSlot = ByteBuffer.allocate(newSlotSize);
+            for (int index = 0; index < slotCapacity; index++) {
+                oldSlot.clear();
+                readFully(in, oldSlot, (long) header.capacity() + (long) index * oldSlotSize);
+                if ((oldSlot.get(S_FLAGS) & FLAG_USED) == 0) continue;
+
+                // Fixed fields keep their offsets; format 1 slots get a zero sync version
+                Arrays.fill(newSlot.array(), (byte) 0);
+                oldSlot.get(0, newSlot.array(), 0, S_COLUMNS_V1);
+                if (format != 1) {
+                    newSlot.putLong(S_SYNC, oldSlot.getLong(S_SYNC));
+                }
+                oldSlot.get(oldColumns, newSlot.array(), S_COLUMNS, oldCapacity * COLUMN_SIZE);
+                if (format == FORMAT && oldSlot.getInt(S_CHECK) != checksum(oldSlot, 0, oldSlotSize)) {
+                    newSlot.putLong(S_JSEQ, 0L); // torn; keep it marked for replay (see the constructor)
+                }
+                newSlot.putInt(S_CHECK, checksum(newSlot, 0, newSlotSize));
+                writeFully(out, newSlot, (long) newHeader.capacity() + (long) index * newSlotSize);
+            }
+
+            long size = (long) newHeader.capacity() + (long) slotCapacity * newSlotSize;
+            writeFully(out, ByteBuffer.allocate(1), size - 1);
+            out.force(true);
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        KnowledgeBound.LOGGER.info("[KnowledgeBound] Rewrote the knowledge slot file (format {}, {} columns).",
+                FORMAT, newCapacity);
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Knowledge slot file is truncated");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+            out.write(buffer, position + buffer.position());
+        }
+    }
+}
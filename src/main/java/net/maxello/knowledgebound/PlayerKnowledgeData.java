@@ -0,0 +1,246 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.util.Arrays;
+
+/**
+ * One player's knowledge state, stored as primitive arrays indexed by
+ * {@link KnowledgeDefinition#getOrdinal()}.
+ *
+ * Every mutation bumps {@link #getVersion()}, which lets the encoded
+ * record be cached and unchanged saves be skipped.
+ *
+ * Also holds the player's roll stream (SplitMix64) for gather and crafting
+ * rolls. It's persisted with the rest, so relogging doesn't reroll anything.
+ */
+public final class PlayerKnowledgeData {
+
+    private final int[] tiers;
+    private final int[] minutes;
+    private final long[] lastXpMinuteIndex;
+
+    // Roll stream state; seeded from world seed + UUID on first use
+    private long rngState;
+    private boolean rngSeeded;
+    // Rolled since the state was last encoded; rolls alone don't count as a change (see flushRolls)
+    private boolean rngAdvanced;
+
+    // True while the stored record is still being fetched (see KnowledgePrefetcher); not persisted
+    private boolean loading;
+
+    // Sequence number of the last journal record for this player (see KnowledgeJournal)
+    private long journalSeq;
+
+    // Version of the network-wide record this state is based on (see SyncedKnowledgeStore)
+    private long syncVersion;
+
+    private long version;
+
+    // Encoded record for cachedVersion (see KnowledgeNbtCodec.encodeCached); never modified
+    private NbtCompound cachedRecord;
+    private long cachedVersion = -1L;
+
+    // Version last handed to the knowledge store
+    private long savedVersion = -1L;
+
+    public PlayerKnowledgeData() {
+        this(KnowledgeRegistry.count());
+    }
+
+    public PlayerKnowledgeData(int knowledgeCount) {
+        this.tiers = new int[knowledgeCount];
+        this.minutes = new int[knowledgeCount];
+        this.lastXpMinuteIndex = new long[knowledgeCount];
+        Arrays.fill(this.lastXpMinuteIndex, -1L);
+    }
+
+    public int size() {
+        return tiers.length;
+    }
+
+    public int getTier(int ordinal) {
+        return tiers[ordinal];
+    }
+
+    public void setTier(int ordinal, int tier) {
+        tiers[ordinal] = tier;
+        version++;
+    }
+
+    public int getMinutes(int ordinal) {
+        return minutes[ordinal];
+    }
+
+    public void setMinutes(int ordinal, int value) {
+        minutes[ordinal] = value;
+        version++;
+    }
+
+    public long getLastXpMinuteIndex(int ordinal) {
+        return lastXpMinuteIndex[ordinal];
+    }
+
+    public void setLastXpMinuteIndex(int ordinal, long minuteIndex) {
+        lastXpMinuteIndex[ordinal] = minuteIndex;
+        version++;
+    }
+
+    /** True if nothing has been learned or attempted for this knowledge yet. */
+    public boolean isDefault(int ordinal) {
+        return tiers[ordinal] == 0 && minutes[ordinal] == 0 && lastXpMinuteIndex[ordinal] == -1L;
+    }
+
+    public void reset() {
+        Arrays.fill(tiers, 0);
+        Arrays.fill(minutes, 0);
+        Arrays.fill(lastXpMinuteIndex, -1L);
+        rngState = 0L;
+        rngSeeded = false;
+        journalSeq = 0L;
+        syncVersion = 0L;
+        version++;
+    }
+
+    public void copyFrom(PlayerKnowledgeData other) {
+        int n = Math.min(size(), other.size());
+        reset();
+        System.arraycopy(other.tiers, 0, tiers, 0, n);
+        System.arraycopy(other.minutes, 0, minutes, 0, n);
+        System.arraycopy(other.lastXpMinuteIndex, 0, lastXpMinuteIndex, 0, n);
+        rngState = other.rngState;
+        rngSeeded = other.rngSeeded;
+        journalSeq = other.journalSeq;
+        syncVersion = other.syncVersion;
+        loading = other.loading;
+        version++;
+    }
+
+    // ---------------------------------------------------------------------
+    // Roll stream
+    // ---------------------------------------------------------------------
+
+    public boolean isRngSeeded() {
+        return rngSeeded;
+    }
+
+    public long getRngState() {
+        return rngState;
+    }
+
+    /** Set the stream position (seed, or a persisted state). */
+    public void setRngState(long state) {
+        this.rngState = state;
+        this.rngSeeded = true;
+        version++;
+    }
+
+    /**
+     * Next roll in [0, 1). Advances the stream without marking the state
+     * changed: the position is persisted with the next real change, or by
+     * {@link #flushRolls()} when the player leaves.
+     */
+    public double nextDouble() {
+        rngState += 0x9E3779B97F4A7C15L;
+        rngAdvanced = true;
+        return (mix64(rngState) >>> 11) * 0x1.0p-53;
+    }
+
+    /** Count rolls since the last encode as a change, so the next save includes them. */
+    public void flushRolls() {
+        if (rngAdvanced) {
+            version++;
+        }
+    }
+
+    /** SplitMix64 finalizer. */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // ---------------------------------------------------------------------
+    // Late load
+    // ---------------------------------------------------------------------
+
+    /**
+     * True while this is a placeholder: the player joined before their stored
+     * record arrived. Placeholders are never saved or journaled.
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public void setLoading(boolean loading) {
+        this.loading = loading;
+    }
+
+    // ---------------------------------------------------------------------
+    // Journal position
+    // ---------------------------------------------------------------------
+
+    /** Last journal record reflected in this state; 0 if none. */
+    public long getJournalSeq() {
+        return journalSeq;
+    }
+
+    public void setJournalSeq(long seq) {
+        this.journalSeq = seq;
+        version++;
+    }
+
+    // ---------------------------------------------------------------------
+    // Network sync
+    // ---------------------------------------------------------------------
+
+    /** Shared-store version this state was acquired at or last published as; 0 if never synced. */
+    public long getSyncVersion() {
+        return syncVersion;
+    }
+
+    public void setSyncVersion(long syncVersion) {
+        this.syncVersion = syncVersion;
+        version++;
+    }
+
+    // ---------------------------------------------------------------------
+    // Change tracking
+    // ---------------------------------------------------------------------
+
+    /** Incremented on every state change. */
+    public long getVersion() {
+        return version;
+    }
+
+    NbtCompound getCachedRecord() {
+        return cachedVersion == version ? cachedRecord : null;
+    }
+
+    void setCachedRecord(NbtCompound record) {
+        this.cachedRecord = record;
+        this.cachedVersion = version;
+        this.rngAdvanced = false; // the record has the current position
+    }
+
+    /** True if the state changed since it was last handed to the knowledge store. */
+    public boolean isDirty() {
+        return savedVersion != version;
+    }
+
+    public void markSaved() {
+        this.savedVersion = version;
+    }
+
+    /** Rough retained heap size in bytes (object, arrays and cached record), for /kb stats. */
+    public long estimateSizeInBytes() {
+        long bytes = 64L; // header + fields
+        bytes += 16L + 4L * tiers.length;
+        bytes += 16L + 4L * minutes.length;
+        bytes += 16L + 8L * lastXpMinuteIndex.length;
+        if (cachedRecord != null) {
+            bytes += cachedRecord.getSizeInBytes();
+        }
+        return bytes;
+    }
+}
@@ -1,132 +1,219 @@
 package net.maxello.knowledgebound;
 
 import net.minecraft.nbt.NbtCompound;
-import net.minecraft.nbt.NbtElement;
-import net.minecraft.nbt.NbtList;
 import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class PlayerKnowledgeManager {
 
-    public static class PlayerKnowledgeState {
-        public int tier;
-        public int currentMinutes;
-        public long lastXpMinuteIndex;
-
-        public PlayerKnowledgeState() {
-            this.tier = 0;
-            this.currentMinutes = 0;
-            this.lastXpMinuteIndex = -1L;
-        }
-    }
-
-    // In-memory storage: per-player, per-knowledge state
-    private static final Map<UUID, Map<Identifier, PlayerKnowledgeState>> PLAYER_DATA = new HashMap<>();
-
-    // NBT key under which we store our data on the player
-    private static final String NBT_KEY = "knowledgebound_knowledge";
-
     public static void init() {
         KnowledgeBound.LOGGER.info("[KnowledgeBound] PlayerKnowledgeManager initialized.");
     }
 
-    private static Map<Identifier, PlayerKnowledgeState> getOrCreatePlayerMap(ServerPlayerEntity player) {
-        return PLAYER_DATA.computeIfAbsent(player.getUuid(), uuid -> new HashMap<>());
-    }
-
-    public static PlayerKnowledgeState getState(ServerPlayerEntity player, Identifier knowledgeId) {
-        Map<Identifier, PlayerKnowledgeState> map = getOrCreatePlayerMap(player);
-        return map.computeIfAbsent(knowledgeId, id -> new PlayerKnowledgeState());
+    /**
+     * The player's knowledge state, stored on the entity (see ServerPlayerEntityMixin).
+     */
+    public static PlayerKnowledgeData getData(ServerPlayerEntity player) {
+        return ((KnowledgeHolder) player).knowledgebound$getKnowledge();
     }
 
     /**
      * Grants 1 "minute" of XP if at least one real-time minute has passed
      * since the last gain for this knowledge.
      * Also updates the XP bar to show this knowledge's progress.
+     *
+     * The action is only recorded in the player's ledger here; the grant,
+     * level-up, messages and XP bar happen once per player at the end of the tick.
      */
     public static void grantMinuteIfAllowed(ServerPlayerEntity player, Identifier knowledgeId) {
         KnowledgeDefinition def = KnowledgeRegistry.get(knowledgeId);
         if (def == null) return;
+        grantMinuteIfAllowed(player, def);
+    }
 
-        PlayerKnowledgeState state = getState(player, knowledgeId);
+    public static void grantMinuteIfAllowed(ServerPlayerEntity player, KnowledgeDefinition def) {
+        KnowledgeLedger ledger = getLedger(player);
+        ledger.record(def.getOrdinal());
+        if (!ledger.markQueued()) {
+            return; // already waiting for this tick's reduction
+        }
+
+        KnowledgeServerState serverState = KnowledgeServerState.get();
+        if (serverState != null) {
+            serverState.queueLedger(player);
+        } else {
+            reduceLedger(player);
+        }
+    }
+
+    /**
+     * Apply everything recorded in the player's ledger this tick: at most one
+     * minute per knowledge, then one XP-bar update for the last knowledge used.
+     */
+    static void reduceLedger(ServerPlayerEntity player) {
+        KnowledgeLedger ledger = getLedger(player);
+        PlayerKnowledgeData data = getData(player);
         long currentMinute = player.getWorld().getTime() / (20L * 60L);
 
-        boolean gainedMinute = false;
+        for (int i = 0; i < ledger.touchedCount(); i++) {
+            int ordinal = ledger.touchedOrdinal(i);
+            applyMinute(player, data, KnowledgeRegistry.byOrdinal(ordinal), ledger.count(ordinal), currentMinute);
+        }
 
-        // Only one XP tick per real-time minute per knowledge
-        if (currentMinute > state.lastXpMinuteIndex) {
-            state.lastXpMinuteIndex = currentMinute;
-            state.currentMinutes += 1;
-            gainedMinute = true;
-
-            int nextTier = state.tier + 1;
-            int neededForNext = (nextTier <= def.getMaxTier())
-                    ? def.getMinutesForTier(nextTier)
-                    : 0;
-
-            if (neededForNext > 0) {
-                boolean isSmithingKnowledge =
-                        knowledgeId.equals(KnowledgeRegistry.TOOLSMITHING_ID) ||
-                                knowledgeId.equals(KnowledgeRegistry.WEAPONSMITHING_ID) ||
-                                knowledgeId.equals(KnowledgeRegistry.ARMOURING_ID);
-
-                if (!isSmithingKnowledge) {
-                    player.sendMessage(
-                            KnowledgeBoundTextFormatter.learningTick(knowledgeId),
-                            true // action bar
-                    );
-                }
+        // XP bar should reflect the last used knowledge's current state (sent with the outbox)
+        if (ledger.lastOrdinal() >= 0) {
+            KnowledgeOutbox outbox = getOutbox(player);
+            outbox.queueXpBar(KnowledgeRegistry.byOrdinal(ledger.lastOrdinal()));
+            scheduleFlush(player, outbox);
+        }
+
+        ledger.clear();
+    }
+
+    private static void applyMinute(ServerPlayerEntity player,
+                                    PlayerKnowledgeData data,
+                                    KnowledgeDefinition def,
+                                    int actions,
+                                    long currentMinute) {
+        KnowledgeJfrEvents.XpGrantEvent event = new KnowledgeJfrEvents.XpGrantEvent();
+        event.begin();
+
+        int result = creditMinute(data, def, currentMinute);
+        if (result != MINUTE_NOT_CREDITED) {
+            journal(player.getUuid(), data, def.getOrdinal(),
+                    result > 0 ? KnowledgeJournal.CAUSE_LEVEL_UP : KnowledgeJournal.CAUSE_MINUTE);
+            KnowledgeMetrics.xpMinute(def);
+
+            if (event.shouldCommit()) {
+                event.player = player.getGameProfile().getName();
+                event.knowledge = def.getIdString();
+                event.tier = data.getTier(def.getOrdinal());
+                event.levelUp = result > 0;
+                event.actions = actions;
+                event.commit();
             }
 
-            // Only try to level up if we actually gained XP
-            tryLevelUp(player, knowledgeId, def, state);
-        }
+            if (result != MINUTE_AT_MAX_TIER && !isSmithingKnowledge(def.getId())) {
+                sendActionBar(player,
+                        KnowledgeBoundTextFormatter.learningTick(def),
+                        KnowledgeOutbox.PRIORITY_PROGRESS);
+            }
 
-        // ALWAYS: XP bar should reflect this knowledge's current state
-        updateXpBarForKnowledge(player, knowledgeId, def, state);
+            if (result > 0) {
+                KnowledgeMetrics.levelUp(def);
+                sendActionBar(player,
+                        KnowledgeBoundTextFormatter.levelUp(def, result),
+                        KnowledgeOutbox.PRIORITY_LEVEL_UP);
+
+                if (isCombatKnowledge(def.getId())) {
+                    ArmorRestrictionHandler.onCombatTierChanged(player);
+                }
+            }
+        }
     }
 
+    // creditMinute results; a positive value is the tier just reached
+    static final int MINUTE_NOT_CREDITED = -2;
+    static final int MINUTE_AT_MAX_TIER = -1;
+    static final int MINUTE_CREDITED = 0;
 
-    private static void tryLevelUp(ServerPlayerEntity player,
-                                   Identifier knowledgeId,
-                                   KnowledgeDefinition def,
-                                   PlayerKnowledgeState state) {
-        int currentTier = state.tier;
-        if (currentTier >= def.getMaxTier()) {
-            return;
+    /**
+     * The state change behind grantMinuteIfAllowed, without any messages:
+     * credits one minute if none was credited yet in {@code currentMinute},
+     * then levels up if enough minutes were collected.
+     *
+     * @return the new tier on level-up, otherwise one of the MINUTE_* constants
+     */
+    static int creditMinute(PlayerKnowledgeData data, KnowledgeDefinition def, long currentMinute) {
+        int ordinal = def.getOrdinal();
+
+        // Only one XP tick per real-time minute per knowledge
+        if (currentMinute <= data.getLastXpMinuteIndex(ordinal)) {
+            return MINUTE_NOT_CREDITED;
         }
 
+        data.setLastXpMinuteIndex(ordinal, currentMinute);
+        data.setMinutes(ordinal, data.getMinutes(ordinal) + 1);
+
+        int currentTier = data.getTier(ordinal);
         int nextTier = currentTier + 1;
-        int needed = def.getMinutesForTier(nextTier);
-        if (needed <= 0) return;
+        int needed = (nextTier <= def.getMaxTier())
+                ? def.getMinutesForTier(nextTier)
+                : 0;
+        if (needed <= 0) {
+            return MINUTE_AT_MAX_TIER;
+        }
+
+        if (data.getMinutes(ordinal) >= needed) {
+            data.setMinutes(ordinal, data.getMinutes(ordinal) - needed);
+            data.setTier(ordinal, nextTier);
+            return nextTier;
+        }
+        return MINUTE_CREDITED;
+    }
 
-        if (state.currentMinutes >= needed) {
-            state.currentMinutes -= needed;
-            state.tier = nextTier;
+    private static boolean isSmithingKnowledge(Identifier knowledgeId) {
+        return knowledgeId.equals(KnowledgeRegistry.TOOLSMITHING_ID) ||
+                knowledgeId.equals(KnowledgeRegistry.WEAPONSMITHING_ID) ||
+                knowledgeId.equals(KnowledgeRegistry.ARMOURING_ID);
+    }
+
+    private static boolean isCombatKnowledge(Identifier knowledgeId) {
+        return knowledgeId.equals(KnowledgeRegistry.MELEE_COMBAT_ID) ||
+                knowledgeId.equals(KnowledgeRegistry.RANGED_COMBAT_ID);
+    }
+
+    // ---------------------------------------------------------------------
+    // Client updates: coalesced per player, flushed once per tick
+    // ---------------------------------------------------------------------
+
+    private static KnowledgeOutbox getOutbox(ServerPlayerEntity player) {
+        return ((KnowledgeHolder) player).knowledgebound$getOutbox();
+    }
+
+    private static KnowledgeLedger getLedger(ServerPlayerEntity player) {
+        return ((KnowledgeHolder) player).knowledgebound$getLedger();
+    }
+
+    /**
+     * Queue an action-bar message; at most one (the highest priority) is sent per tick.
+     */
+    public static void sendActionBar(ServerPlayerEntity player, Text message, int priority) {
+        KnowledgeOutbox outbox = getOutbox(player);
+        outbox.queueActionBar(message, priority);
+        scheduleFlush(player, outbox);
+    }
 
-            player.sendMessage(
-                    KnowledgeBoundTextFormatter.levelUp(knowledgeId, nextTier),
-                    true // action bar
-            );
+    private static void scheduleFlush(ServerPlayerEntity player, KnowledgeOutbox outbox) {
+        if (!outbox.markQueued()) {
+            return; // already waiting for this tick's flush
+        }
+
+        KnowledgeServerState serverState = KnowledgeServerState.get();
+        if (serverState != null) {
+            serverState.queueOutbox(player);
+        } else {
+            outbox.flush(player);
         }
     }
 
     /**
      * Sets the vanilla XP bar to represent this knowledge's tier + progress.
      * Level number = current tier, bar progress = minutes / minutes needed.
+     * Skips the sync entirely if the bar already shows exactly that.
      */
-    private static void updateXpBarForKnowledge(ServerPlayerEntity player,
-                                                Identifier knowledgeId,
-                                                KnowledgeDefinition def,
-                                                PlayerKnowledgeState state) {
+    static void applyXpBar(ServerPlayerEntity player, KnowledgeDefinition def) {
+        PlayerKnowledgeData data = getData(player);
+        int ordinal = def.getOrdinal();
+
         // XP level number = current tier
-        int levelDisplay = state.tier;
+        int levelDisplay = data.getTier(ordinal);
 
-        int nextTier = state.tier + 1;
+        int nextTier = levelDisplay + 1;
         int needed = def.getMinutesForTier(nextTier);
         float progress;
 
@@ -134,7 +221,13 @@ public class PlayerKnowledgeManager {
             // Max tier: full bar
             progress = 1.0f;
         } else {
-            progress = (float) state.currentMinutes / (float) needed;
+            progress = (float) data.getMinutes(ordinal) / (float) needed;
+        }
+
+        if (player.experienceLevel == levelDisplay
+                && player.experienceProgress == progress
+                && player.totalExperience == 0) {
+            return; // nothing changed on screen
         }
 
         // Directly manipulate vanilla XP fields
@@ -146,59 +239,410 @@ public class PlayerKnowledgeManager {
         player.addExperience(0);
     }
 
+    /**
+     * Next gather/crafting roll in [0, 1) from the player's own stream.
+     * The stream is seeded from the world seed and UUID on first use.
+     */
+    public static double nextRoll(ServerPlayerEntity player) {
+        PlayerKnowledgeData data = getData(player);
+        if (!data.isRngSeeded()) {
+            data.setRngState(rollSeed(player.getServerWorld().getSeed(), player.getUuid()));
+        }
+        return data.nextDouble();
+    }
+
+    static long rollSeed(long worldSeed, UUID uuid) {
+        long seed = worldSeed;
+        seed = PlayerKnowledgeData.mix64(seed ^ uuid.getMostSignificantBits());
+        seed = PlayerKnowledgeData.mix64(seed ^ uuid.getLeastSignificantBits());
+        return seed;
+    }
 
     public static int getTier(ServerPlayerEntity player, Identifier knowledgeId) {
-        return getState(player, knowledgeId).tier;
+        KnowledgeDefinition def = KnowledgeRegistry.get(knowledgeId);
+        if (def == null) return 0;
+        return getData(player).getTier(def.getOrdinal());
+    }
+
+    public static int getTier(ServerPlayerEntity player, KnowledgeDefinition def) {
+        return getData(player).getTier(def.getOrdinal());
     }
 
     // ---------------------------------------------------------------------
-    // Persistence: write/read to/from player NBT data
+    // Persistence: knowledge store (see KnowledgeStore), with migration
+    // from the old list inside the vanilla player NBT
     // ---------------------------------------------------------------------
 
+    /**
+     * Called from writeCustomDataToNbt (vanilla autosave, disconnect, …).
+     * Knowledge no longer goes into player.dat; we queue a snapshot for the
+     * knowledge store instead. Without a running server we fall back to the NBT.
+     */
     public static void writeToNbt(ServerPlayerEntity player, NbtCompound root) {
-        Map<Identifier, PlayerKnowledgeState> map = PLAYER_DATA.get(player.getUuid());
-        if (map == null || map.isEmpty()) {
-            return;
+        long start = System.nanoTime();
+        KnowledgeServerState serverState = KnowledgeServerState.get();
+        if (serverState == null) {
+            NbtCompound record = KnowledgeNbtCodec.encodeCached(getData(player));
+            root.put(KnowledgeNbtCodec.KEY, record.getCompound(KnowledgeNbtCodec.KEY).copy());
+        } else {
+            save(player);
         }
+        KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.NBT_WRITE, start);
+    }
+
+    /**
+     * Called from readCustomDataFromNbt while the player is being loaded.
+     */
+    public static void readFromNbt(ServerPlayerEntity player, NbtCompound root) {
+        long start = System.nanoTime();
+        try {
+            loadKnowledge(player, root);
+        } finally {
+            KnowledgeMetrics.recordSince(KnowledgeMetrics.Hook.NBT_READ, start);
+        }
+    }
 
-        NbtList list = new NbtList();
+    private static void loadKnowledge(ServerPlayerEntity player, NbtCompound root) {
+        PlayerKnowledgeData data = getData(player);
+
+        KnowledgeServerState serverState = KnowledgeServerState.get();
+        if (serverState != null) {
+            PlayerKnowledgeData cached = serverState.getRecentlyDeparted(player.getUuid());
+            if (cached != null) {
+                // Rejoined soon after leaving: the cached copy is what was saved then
+                serverState.getPrefetcher().cancel(player.getUuid());
+                data.copyFrom(cached);
+                data.markSaved();
+                return;
+            }
 
-        for (Map.Entry<Identifier, PlayerKnowledgeState> entry : map.entrySet()) {
-            Identifier id = entry.getKey();
-            PlayerKnowledgeState state = entry.getValue();
+            CompletableFuture<NbtCompound> prefetch = serverState.getPrefetcher().take(player.getUuid());
+            if (prefetch != null && !prefetch.isDone()) {
+                // Don't hold up the tick: play on a placeholder and merge once the record arrives
+                if (KnowledgeNbtCodec.hasData(root)) {
+                    KnowledgeNbtCodec.decode(root, data);
+                }
+                PlayerKnowledgeData initial = new PlayerKnowledgeData();
+                initial.copyFrom(data);
+                data.setLoading(true);
+
+                UUID uuid = player.getUuid();
+                long start = System.nanoTime();
+                prefetch.whenCompleteAsync(
+                        (record, error) -> finishLateLoad(serverState, uuid, data, initial, record, error, start),
+                        serverState.getServer());
+                return;
+            }
 
-            NbtCompound tag = new NbtCompound();
-            tag.putString("id", id.toString());
-            tag.putInt("tier", state.tier);
-            tag.putInt("minutes", state.currentMinutes);
-            tag.putLong("lastMinute", state.lastXpMinuteIndex);
+            KnowledgeJfrEvents.PersistenceEvent event = new KnowledgeJfrEvents.PersistenceEvent();
+            event.begin();
 
-            list.add(tag);
+            NbtCompound record = prefetch != null && !prefetch.isCompletedExceptionally()
+                    ? prefetch.join()
+                    : serverState.getStore().acquire(player.getUuid());
+            if (record != null) {
+                KnowledgeNbtCodec.decode(record, data);
+                data.markSaved(); // identical to what's stored
+            }
+
+            if (event.shouldCommit()) {
+                event.player = player.getUuidAsString();
+                event.operation = KnowledgeJfrEvents.PersistenceEvent.LOAD;
+                event.succeeded = record != null;
+                event.commit();
+            }
+            if (record != null) return;
         }
 
-        root.put(NBT_KEY, list);
+        // First load since the knowledge store was introduced: migrate the
+        // old list from player.dat. It gets written to the store on the next
+        // save, and disappears from player.dat the next time vanilla saves.
+        if (KnowledgeNbtCodec.hasData(root)) {
+            KnowledgeNbtCodec.decode(root, data);
+        }
     }
 
-    public static void readFromNbt(ServerPlayerEntity player, NbtCompound root) {
-        if (!root.contains(NBT_KEY, NbtElement.LIST_TYPE)) {
+    /**
+     * On the server thread, once a prefetch that outlived the player's join
+     * completes: replace the placeholder with the stored record, keeping the
+     * minutes earned in the meantime. A failed load is retried on the loader
+     * threads while the player stays on the placeholder.
+     *
+     * @param placeholder the knowledge the player is playing on meanwhile
+     * @param initial     the placeholder as it started
+     */
+    private static void finishLateLoad(KnowledgeServerState serverState, UUID uuid, PlayerKnowledgeData placeholder,
+                                       PlayerKnowledgeData initial, NbtCompound record, Throwable error, long start) {
+        ServerPlayerEntity player = serverState.getServer().getPlayerManager().getPlayer(uuid);
+        boolean online = player != null && getData(player) == placeholder;
+
+        if (error != null) {
+            if (online) {
+                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Loading knowledge of {} failed, retrying.", uuid, error);
+                serverState.getPrefetcher().retry(uuid).whenCompleteAsync(
+                        (retried, retryError) -> finishLateLoad(serverState, uuid, placeholder, initial,
+                                retried, retryError, start),
+                        serverState.getServer());
+            } else {
+                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Loading knowledge of {} failed after they left; "
+                        + "minutes earned while it loaded are lost.", uuid, error);
+                serverState.releaseIfGone(uuid);
+            }
+            return;
+        }
+
+        if (!online) {
+            // Left before the record arrived; the placeholder was never saved, so save what it earned now
+            saveLateGains(serverState, uuid, placeholder, initial, record);
+            serverState.releaseIfGone(uuid); // the load may have acquired them after they left
             return;
         }
 
-        NbtList list = root.getList(NBT_KEY, NbtElement.COMPOUND_TYPE);
-        Map<Identifier, PlayerKnowledgeState> map = getOrCreatePlayerMap(player);
-        map.clear();
+        PlayerKnowledgeData live = placeholder;
+        if (!live.isLoading()) return;
+
+        if (record != null) {
+            PlayerKnowledgeData loaded = new PlayerKnowledgeData();
+            KnowledgeNbtCodec.decode(record, loaded);
+            boolean[] gained = addGains(loaded, live, initial);
+
+            live.copyFrom(loaded);
+            live.setLoading(false);
+            for (int ordinal = 0; ordinal < gained.length; ordinal++) {
+                if (gained[ordinal]) {
+                    journal(uuid, live, ordinal, KnowledgeJournal.CAUSE_MINUTE);
+                }
+            }
+        } else {
+            live.setLoading(false); // the placeholder already is the player's knowledge
+        }
+
+        journalBaseline(player);
+        ArmorRestrictionHandler.checkPlayerArmor(player);
+
+        KnowledgeJfrEvents.PersistenceEvent event = new KnowledgeJfrEvents.PersistenceEvent();
+        if (event.shouldCommit()) {
+            event.player = uuid.toString();
+            event.operation = KnowledgeJfrEvents.PersistenceEvent.LOAD;
+            event.succeeded = record != null;
+            event.commit();
+        }
+        KnowledgeBound.LOGGER.debug("[KnowledgeBound] Late knowledge load for {} merged after {} ms.",
+                uuid, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /** Add a departed placeholder's gains onto the loaded record (or its start) and save that. */
+    private static void saveLateGains(KnowledgeServerState serverState, UUID uuid, PlayerKnowledgeData placeholder,
+                                      PlayerKnowledgeData initial, NbtCompound record) {
+        PlayerKnowledgeData loaded = new PlayerKnowledgeData();
+        if (record != null) {
+            KnowledgeNbtCodec.decode(record, loaded);
+        } else {
+            loaded.copyFrom(initial); // nothing stored: the placeholder's start is the player's knowledge
+        }
+        loaded.setLoading(false);
+
+        boolean[] gained = addGains(loaded, placeholder, initial);
+        boolean any = false;
+        for (int ordinal = 0; ordinal < gained.length; ordinal++) {
+            if (gained[ordinal]) {
+                journal(uuid, loaded, ordinal, KnowledgeJournal.CAUSE_MINUTE);
+                any = true;
+            }
+        }
+        if (any) {
+            serverState.getStore().save(uuid, KnowledgeNbtCodec.encode(loaded));
+            KnowledgeBound.LOGGER.debug("[KnowledgeBound] {} left before their knowledge finished loading; "
+                    + "saved the minutes earned meanwhile.", uuid);
+        }
+    }
+
+    /**
+     * Add the minutes earned between {@code before} and {@code now} onto
+     * {@code target}, levelling up as needed; last XP minutes take the later one.
+     *
+     * @return per ordinal, whether anything was added
+     */
+    static boolean[] addGains(PlayerKnowledgeData target, PlayerKnowledgeData now, PlayerKnowledgeData before) {
+        boolean[] gained = new boolean[target.size()];
+        for (int ordinal = 0; ordinal < target.size(); ordinal++) {
+            KnowledgeDefinition def = KnowledgeRegistry.byOrdinal(ordinal);
+            int gap = totalMinutes(def, now, ordinal) - totalMinutes(def, before, ordinal);
+            if (gap > 0) {
+                addMinutes(target, def, gap);
+                gained[ordinal] = true;
+            }
+            target.setLastXpMinuteIndex(ordinal,
+                    Math.max(target.getLastXpMinuteIndex(ordinal), now.getLastXpMinuteIndex(ordinal)));
+        }
+        return gained;
+    }
+
+    /** Minutes collected in a knowledge since tier 0. */
+    private static int totalMinutes(KnowledgeDefinition def, PlayerKnowledgeData data, int ordinal) {
+        int total = data.getMinutes(ordinal);
+        for (int tier = 1; tier <= data.getTier(ordinal) && tier <= def.getMaxTier(); tier++) {
+            total += def.getMinutesForTier(tier);
+        }
+        return total;
+    }
+
+    /** Add minutes to a knowledge, levelling up as creditMinute would. */
+    private static void addMinutes(PlayerKnowledgeData data, KnowledgeDefinition def, int count) {
+        int ordinal = def.getOrdinal();
+        data.setMinutes(ordinal, data.getMinutes(ordinal) + count);
+
+        while (data.getTier(ordinal) < def.getMaxTier()) {
+            int needed = def.getMinutesForTier(data.getTier(ordinal) + 1);
+            if (needed <= 0 || data.getMinutes(ordinal) < needed) break;
+
+            data.setMinutes(ordinal, data.getMinutes(ordinal) - needed);
+            data.setTier(ordinal, data.getTier(ordinal) + 1);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Journal (see KnowledgeJournal)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Append one knowledge's current state to the journal, if it's enabled.
+     */
+    static void journal(UUID uuid, PlayerKnowledgeData data, int ordinal, byte cause) {
+        KnowledgeServerState serverState = KnowledgeServerState.get();
+        KnowledgeJournal journal = serverState != null ? serverState.getJournal() : null;
+        if (journal == null || data.isLoading()) return;
+
+        data.setJournalSeq(journal.append(cause, uuid, ordinal,
+                data.getTier(ordinal), data.getMinutes(ordinal), data.getLastXpMinuteIndex(ordinal)));
+    }
+
+    /**
+     * On join: if this player's knowledge predates the journal, record it as
+     * the starting point so later rollbacks know what they had.
+     */
+    static void journalBaseline(ServerPlayerEntity player) {
+        PlayerKnowledgeData data = getData(player);
+        if (data.getJournalSeq() > 0L || data.isLoading()) return;
+
+        for (int ordinal = 0; ordinal < data.size(); ordinal++) {
+            if (!data.isDefault(ordinal)) {
+                journal(player.getUuid(), data, ordinal, KnowledgeJournal.CAUSE_BASELINE);
+            }
+        }
+    }
+
+    /**
+     * Replace a player's knowledge with its state from the journal (/kb rollback).
+     * Works for online players and, through the knowledge store, offline ones.
+     *
+     * @return false (nothing changed) if the player is online but their
+     *         knowledge is still loading; the merge would replace the rollback
+     */
+    static boolean rollback(KnowledgeServerState serverState, UUID uuid, KnowledgeJournal.History history) {
+        ServerPlayerEntity online = serverState.getServer().getPlayerManager().getPlayer(uuid);
+        PlayerKnowledgeData data;
+        if (online != null) {
+            data = getData(online);
+            if (data.isLoading()) return false;
+        } else {
+            // Keep what the journal doesn't track (roll stream) from the stored record
+            data = new PlayerKnowledgeData();
+            PlayerKnowledgeData cached = serverState.getRecentlyDeparted(uuid);
+            if (cached != null) {
+                data.copyFrom(cached);
+            } else {
+                NbtCompound record = serverState.getStore().load(uuid);
+                if (record != null) {
+                    KnowledgeNbtCodec.decode(record, data);
+                }
+            }
+        }
+
+        history.restoreOnto(data);
+        for (int ordinal = 0; ordinal < data.size(); ordinal++) {
+            journal(uuid, data, ordinal, KnowledgeJournal.CAUSE_ADMIN);
+        }
+
+        if (online != null) {
+            ArmorRestrictionHandler.checkPlayerArmor(online);
+            save(online);
+        } else {
+            serverState.getStore().save(uuid, KnowledgeNbtCodec.encode(data));
+            serverState.updateRecentlyDeparted(uuid, data);
+            serverState.getPrefetcher().cancel(uuid); // read before this rollback
+        }
+        return true;
+    }
+
+    /**
+     * Another server published this player's knowledge while we were based on
+     * an older version (see SyncedKnowledgeStore). {@code merged} already holds
+     * both sides' progress up to {@code rejected}; add what the player earned
+     * here since then and make it their live state.
+     *
+     * @return the record to save and publish
+     */
+    static NbtCompound rebase(UUID uuid, NbtCompound rejected, NbtCompound merged) {
+        KnowledgeServerState serverState = KnowledgeServerState.get();
+        ServerPlayerEntity player = serverState != null
+                ? serverState.getServer().getPlayerManager().getPlayer(uuid)
+                : null;
+        if (player == null || getData(player).isLoading()) {
+            return merged;
+        }
+
+        PlayerKnowledgeData live = getData(player);
+        PlayerKnowledgeData previous = new PlayerKnowledgeData();
+        previous.copyFrom(live);
+
+        PlayerKnowledgeData result = new PlayerKnowledgeData();
+        KnowledgeNbtCodec.decode(merged, result);
+        PlayerKnowledgeData before = new PlayerKnowledgeData();
+        KnowledgeNbtCodec.decode(rejected, before);
+        addGains(result, live, before);
+        result.setJournalSeq(live.getJournalSeq());
+        if (live.isRngSeeded()) {
+            result.setRngState(live.getRngState());
+        }
+
+        live.copyFrom(result);
+        for (int ordinal = 0; ordinal < live.size(); ordinal++) {
+            if (live.getTier(ordinal) != previous.getTier(ordinal)
+                    || live.getMinutes(ordinal) != previous.getMinutes(ordinal)) {
+                journal(uuid, live, ordinal, KnowledgeJournal.CAUSE_SYNC);
+            }
+        }
+        ArmorRestrictionHandler.checkPlayerArmor(player);
+
+        NbtCompound record = KnowledgeNbtCodec.encodeCached(live);
+        live.markSaved(); // the sync store saves it
+        return record;
+    }
+
+    /**
+     * Capture an immutable snapshot on the server thread and hand it to the background writer.
+     * Does nothing if the knowledge didn't change since the last save.
+     */
+    public static void save(ServerPlayerEntity player) {
+        KnowledgeServerState serverState = KnowledgeServerState.get();
+        if (serverState == null) return;
+
+        PlayerKnowledgeData data = getData(player);
+        if (!data.isDirty() || data.isLoading()) return; // never overwrite the record with a placeholder
 
-        for (int i = 0; i < list.size(); i++) {
-            NbtCompound tag = list.getCompound(i);
-            if (!tag.contains("id")) continue;
+        KnowledgeJfrEvents.PersistenceEvent event = new KnowledgeJfrEvents.PersistenceEvent();
+        event.begin();
 
-            Identifier id = new Identifier(tag.getString("id"));
-            PlayerKnowledgeState state = new PlayerKnowledgeState();
-            state.tier = tag.getInt("tier");
-            state.currentMinutes = tag.getInt("minutes");
-            state.lastXpMinuteIndex = tag.getLong("lastMinute");
+        // The cached record is never modified, so the writer can share it
+        serverState.getStore().save(player.getUuid(), KnowledgeNbtCodec.encodeCached(data));
+        data.markSaved();
 
-            map.put(id, state);
+        if (event.shouldCommit()) {
+            event.player = player.getUuidAsString();
+            event.operation = KnowledgeJfrEvents.PersistenceEvent.SNAPSHOT;
+            event.succeeded = true;
+            event.commit();
         }
     }
 }
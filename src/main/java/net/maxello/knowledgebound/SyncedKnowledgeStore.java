@@ -0,0 +1,391 @@
+package net.maxello.knowledgebound;
+
+import net.minecraft.nbt.NbtCompound;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps knowledge in step across backend servers behind a proxy, on top of
+ * this server's own store.
+ *
+ * A joining player's record is acquired from the shared {@link KnowledgeSyncStore}
+ * (normally by the login prefetch, off the server thread) and whichever of
+ * the shared and local copies is newer wins. Offline lookups ({@link #load})
+ * read the same way but track nothing. Saves go to the local store as usual
+ * and are published write-behind: every knowledgeSyncIntervalSeconds and
+ * right after the player leaves, never per event.
+ *
+ * Writes are optimistic: each one names the version it's based on and the
+ * shared store rejects it if another server published in between. A
+ * rejected write is rebased: the progress this server made since its base
+ * is added onto the newer record, merged into the online player on the
+ * server thread, and published again.
+ *
+ * Local records remember the shared version they're based on ("sv", see
+ * KnowledgeNbtCodec) so a restart can tell a stale copy from an unpublished one.
+ */
+public final class SyncedKnowledgeStore implements KnowledgeStore {
+
+    /** Merges a rebased record into the live player; runs on the server thread. */
+    @FunctionalInterface
+    public interface Rebaser {
+        /**
+         * @param rejected the snapshot whose write was rejected
+         * @param merged   the newer shared record plus the progress in {@code rejected}
+         * @return the record to save and publish instead
+         */
+        NbtCompound rebase(UUID uuid, NbtCompound rejected, NbtCompound merged);
+    }
+
+    private final KnowledgeStore local;
+    private final KnowledgeSyncStore shared;
+    private final Executor serverThread;
+    private final Rebaser rebaser;
+    private final ScheduledExecutorService syncer;
+
+    // Latest snapshot per player that still has to be published
+    private final Map<UUID, NbtCompound> unpublished = new ConcurrentHashMap<>();
+    // Shared version per player as last read or written, and its record (the base for rebasing)
+    private final Map<UUID, Long> versions = new ConcurrentHashMap<>();
+    private final Map<UUID, NbtCompound> bases = new ConcurrentHashMap<>();
+    // Waiting for the server thread to merge a rebased record; not published until then
+    private final Set<UUID> rebasing = ConcurrentHashMap.newKeySet();
+    // Acquired by a join; only these get versions/bases tracked and rebased
+    private final Set<UUID> acquired = ConcurrentHashMap.newKeySet();
+    // Left the server; forgotten once their last snapshot is published
+    private final Set<UUID> leaving = ConcurrentHashMap.newKeySet();
+    // Acquire still reading, by its token; a release (or newer acquire) in between voids it
+    private final Map<UUID, Object> acquiring = new ConcurrentHashMap<>();
+    // Guards starting and ending tracking against releases
+    private final Object sessions = new Object();
+
+    public SyncedKnowledgeStore(KnowledgeStore local, KnowledgeSyncStore shared,
+                                Executor serverThread, Rebaser rebaser, int intervalSeconds) {
+        this.local = local;
+        this.shared = shared;
+        this.serverThread = serverThread;
+        this.rebaser = rebaser;
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KnowledgeBound-Sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(() -> publishAll(true), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /** This server's own store. */
+    public KnowledgeStore getLocal() {
+        return local;
+    }
+
+    // --------------------------------------------------
+    //  KnowledgeStore
+    // --------------------------------------------------
+
+    /**
+     * Newer of the local and shared copy, without tracking the player
+     * (offline lookups). May wait on the shared store.
+     */
+    @Override
+    public NbtCompound load(UUID uuid) {
+        return read(uuid, false);
+    }
+
+    /**
+     * Like {@link #load}, and tracks the player for write-behind until they
+     * leave. May wait on the shared store, so it's best called from the login
+     * prefetch. If {@link #release} comes before this returns, nothing is tracked.
+     */
+    @Override
+    public NbtCompound acquire(UUID uuid) {
+        Object token = new Object();
+        acquiring.put(uuid, token);
+        try {
+            return read(uuid, token);
+        } finally {
+            acquiring.remove(uuid, token); // already gone unless the read failed
+        }
+    }
+
+    /** @param token the acquire's token, or null for a plain load */
+    private NbtCompound read(UUID uuid, Object token) {
+        NbtCompound localRecord = local.load(uuid);
+
+        KnowledgeSyncStore.Versioned remote;
+        try {
+            remote = shared.get(uuid);
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.warn("[KnowledgeBound] Could not read network knowledge of {}, using the local copy.",
+                    uuid, e);
+            track(uuid, token, null, null);
+            return localRecord;
+        }
+
+        if (remote == null) {
+            // Never published: this server's copy becomes the first version
+            track(uuid, token, null, localRecord);
+            return localRecord;
+        }
+
+        PlayerKnowledgeData localData = localRecord != null ? decode(localRecord) : null;
+        if (localData != null && localData.getSyncVersion() >= remote.version) {
+            // Nothing newer elsewhere; the local copy may hold progress not published yet
+            boolean ahead = token != null && !sameProgress(localData, decode(remote.record));
+            track(uuid, token, remote, ahead ? localRecord : null);
+            return localRecord;
+        }
+        track(uuid, token, remote, null);
+
+        // Progress from another server: take it, keeping this server's journal position
+        PlayerKnowledgeData data = decode(remote.record);
+        data.setSyncVersion(remote.version);
+        data.setJournalSeq(localData != null ? localData.getJournalSeq() : 0L);
+        return KnowledgeNbtCodec.encode(data);
+    }
+
+    @Override
+    public void save(UUID uuid, NbtCompound snapshot) {
+        stage(uuid, stamp(snapshot, versions.get(uuid)));
+    }
+
+    @Override
+    public void release(UUID uuid) {
+        synchronized (sessions) {
+            acquiring.remove(uuid);
+            leaving.add(uuid);
+        }
+        syncer.execute(() -> publish(uuid, true));
+    }
+
+    /** This server's local store only. */
+    @Override
+    public List<Ranked> top(KnowledgeDefinition def, int limit) {
+        return local.top(def, limit);
+    }
+
+    @Override
+    public void whenFlushed(Runnable action) {
+        local.whenFlushed(action);
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return local.getQueueDepth();
+    }
+
+    /**
+     * Publish what's left (conflicts can't be rebased anymore; the local copy
+     * keeps that progress), then close both stores.
+     */
+    @Override
+    public void close() {
+        syncer.shutdown();
+        try {
+            if (!syncer.awaitTermination(30, TimeUnit.SECONDS)) {
+                KnowledgeBound.LOGGER.warn("[KnowledgeBound] Knowledge sync did not finish in time.");
+                syncer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        publishAll(false);
+        local.close();
+        shared.close();
+    }
+
+    // --------------------------------------------------
+    //  Write-behind
+    // --------------------------------------------------
+
+    private void publishAll(boolean canRebase) {
+        for (UUID uuid : unpublished.keySet()) {
+            publish(uuid, canRebase);
+        }
+        for (UUID uuid : leaving) {
+            forgetIfLeft(uuid);
+        }
+    }
+
+    /** Sync thread only (or after it stopped). */
+    private void publish(UUID uuid, boolean canRebase) {
+        NbtCompound snapshot = unpublished.get(uuid);
+        if (snapshot == null || rebasing.contains(uuid)) {
+            forgetIfLeft(uuid);
+            return;
+        }
+
+        PlayerKnowledgeData data = decode(snapshot);
+        long expected = versions.getOrDefault(uuid, data.getSyncVersion());
+        NbtCompound record = forNetwork(data, expected + 1L);
+
+        try {
+            if (!shared.compareAndSet(uuid, expected, record)) {
+                KnowledgeBound.LOGGER.info("[KnowledgeBound] Rejected stale knowledge write for {} (based on v{}).",
+                        uuid, expected);
+                if (!acquired.contains(uuid)) {
+                    // Offline change (e.g. rollback) based on an outdated copy: the newer record wins
+                    KnowledgeBound.LOGGER.warn("[KnowledgeBound] Knowledge of {} changed on another server; dropping the offline change.",
+                            uuid);
+                    unpublished.remove(uuid, snapshot);
+                } else if (canRebase) {
+                    rebase(uuid, snapshot, data);
+                }
+                return;
+            }
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.warn("[KnowledgeBound] Could not publish knowledge of {}, retrying later.", uuid, e);
+            return;
+        }
+
+        long published = expected + 1L;
+        if (acquired.contains(uuid)) {
+            versions.put(uuid, published);
+            bases.put(uuid, record);
+        }
+
+        // Remember the new version locally, on the newest snapshot if one arrived meanwhile.
+        // Atomic with save(), so a newer snapshot is never replaced by this one.
+        unpublished.compute(uuid, (key, current) -> {
+            if (current == null) return null;
+            NbtCompound stamped = stamp(current, published);
+            local.save(uuid, stamped);
+            return current == snapshot ? null : stamped;
+        });
+        forgetIfLeft(uuid);
+    }
+
+    /**
+     * Add the progress in {@code data} since our base onto the newer shared
+     * record, then let the server thread merge it into the live player.
+     */
+    private void rebase(UUID uuid, NbtCompound snapshot, PlayerKnowledgeData data) {
+        KnowledgeSyncStore.Versioned current;
+        try {
+            current = shared.get(uuid);
+        } catch (IOException e) {
+            KnowledgeBound.LOGGER.warn("[KnowledgeBound] Could not read network knowledge of {}, retrying later.", uuid, e);
+            return;
+        }
+        if (current == null) {
+            versions.put(uuid, 0L); // deleted in between; publish as the first version next round
+            return;
+        }
+
+        PlayerKnowledgeData merged = decode(current.record);
+        NbtCompound base = bases.get(uuid);
+        if (base != null) {
+            PlayerKnowledgeManager.addGains(merged, data, decode(base));
+        } else {
+            KnowledgeBound.LOGGER.warn("[KnowledgeBound] Knowledge of {} changed on another server; dropping local progress.",
+                    uuid);
+        }
+        merged.setJournalSeq(data.getJournalSeq());
+        merged.setSyncVersion(current.version);
+        if (data.isRngSeeded()) {
+            merged.setRngState(data.getRngState()); // this server's roll stream
+        }
+
+        versions.put(uuid, current.version);
+        bases.put(uuid, current.record);
+        rebasing.add(uuid);
+
+        NbtCompound mergedRecord = KnowledgeNbtCodec.encode(merged);
+        serverThread.execute(() -> {
+            stage(uuid, stamp(rebaser.rebase(uuid, snapshot, mergedRecord), current.version));
+            rebasing.remove(uuid);
+        });
+    }
+
+    /**
+     * Save locally and queue for publishing, as one step per player so the
+     * local store always ends up with the newest snapshot.
+     */
+    private void stage(UUID uuid, NbtCompound record) {
+        unpublished.compute(uuid, (key, previous) -> {
+            local.save(uuid, record);
+            return record;
+        });
+    }
+
+    /**
+     * Start tracking an acquired player, unless the acquire was voided while
+     * it read. Does nothing for a plain load ({@code token} null).
+     */
+    private void track(UUID uuid, Object token, KnowledgeSyncStore.Versioned remote, NbtCompound unpublishedRecord) {
+        if (token == null) return;
+        synchronized (sessions) {
+            if (!acquiring.remove(uuid, token)) return;
+            leaving.remove(uuid);
+            acquired.add(uuid);
+            if (remote != null) {
+                versions.put(uuid, remote.version);
+                bases.put(uuid, remote.record);
+            }
+            if (unpublishedRecord != null) {
+                unpublished.putIfAbsent(uuid, unpublishedRecord);
+            }
+        }
+    }
+
+    private void forgetIfLeft(UUID uuid) {
+        synchronized (sessions) {
+            if (leaving.contains(uuid) && !unpublished.containsKey(uuid)) {
+                leaving.remove(uuid);
+                acquired.remove(uuid);
+                versions.remove(uuid);
+                bases.remove(uuid);
+            }
+        }
+    }
+
+    // --------------------------------------------------
+    //  Records
+    // --------------------------------------------------
+
+    /** The record with its sync version set; the same record if nothing changes. */
+    private static NbtCompound stamp(NbtCompound record, Long syncVersion) {
+        if (syncVersion == null
+                || record.getCompound(KnowledgeNbtCodec.KEY).getLong("sv") == syncVersion) {
+            return record;
+        }
+        PlayerKnowledgeData data = decode(record);
+        data.setSyncVersion(syncVersion);
+        return KnowledgeNbtCodec.encode(data);
+    }
+
+    /** Shared records don't carry this server's journal position. */
+    private static NbtCompound forNetwork(PlayerKnowledgeData data, long version) {
+        PlayerKnowledgeData copy = new PlayerKnowledgeData();
+        copy.copyFrom(data);
+        copy.setJournalSeq(0L);
+        copy.setSyncVersion(version);
+        return KnowledgeNbtCodec.encode(copy);
+    }
+
+    private static boolean sameProgress(PlayerKnowledgeData a, PlayerKnowledgeData b) {
+        for (int ordinal = 0; ordinal < a.size(); ordinal++) {
+            if (a.getTier(ordinal) != b.getTier(ordinal)
+                    || a.getMinutes(ordinal) != b.getMinutes(ordinal)
+                    || a.getLastXpMinuteIndex(ordinal) != b.getLastXpMinuteIndex(ordinal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static PlayerKnowledgeData decode(NbtCompound record) {
+        PlayerKnowledgeData data = new PlayerKnowledgeData();
+        KnowledgeNbtCodec.decode(record, data);
+        return data;
+    }
+}
@@ -0,0 +1,17 @@
+package net.maxello.knowledgebound.mixin;
+
+import com.mojang.authlib.GameProfile;
+import net.minecraft.server.network.ServerLoginNetworkHandler;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * The authenticated profile of a player that is still logging in, so their
+ * knowledge can be fetched before the player entity exists.
+ */
+@Mixin(ServerLoginNetworkHandler.class)
+public interface ServerLoginNetworkHandlerAccessor {
+
+    @Accessor("profile")
+    GameProfile knowledgebound$getProfile();
+}
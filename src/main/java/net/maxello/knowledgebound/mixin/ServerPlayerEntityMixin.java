@@ -1,6 +1,10 @@
 package net.maxello.knowledgebound.mixin;
 
 import com.mojang.authlib.GameProfile;
+import net.maxello.knowledgebound.KnowledgeHolder;
+import net.maxello.knowledgebound.KnowledgeLedger;
+import net.maxello.knowledgebound.KnowledgeOutbox;
+import net.maxello.knowledgebound.PlayerKnowledgeData;
 import net.maxello.knowledgebound.PlayerKnowledgeManager;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.nbt.NbtCompound;
@@ -8,18 +12,67 @@ import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 @Mixin(ServerPlayerEntity.class)
-public abstract class ServerPlayerEntityMixin extends PlayerEntity {
+public abstract class ServerPlayerEntityMixin extends PlayerEntity implements KnowledgeHolder {
+
+    // Knowledge state lives on the player entity itself
+    @Unique
+    private final PlayerKnowledgeData knowledgebound$knowledge = new PlayerKnowledgeData();
+
+    // Pending XP-bar / action-bar updates; transient, not copied on respawn
+    @Unique
+    private final KnowledgeOutbox knowledgebound$outbox = new KnowledgeOutbox();
+
+    // XP actions recorded this tick; transient, not copied on respawn
+    @Unique
+    private final KnowledgeLedger knowledgebound$ledger = new KnowledgeLedger();
+
+    @Unique
+    private int knowledgebound$lastMeleeTick = -1;
 
     // Required dummy constructor for mixin into PlayerEntity subclass
     public ServerPlayerEntityMixin(World world, BlockPos pos, float yaw, GameProfile profile) {
         super(world, pos, yaw, profile);
     }
 
+    @Override
+    public PlayerKnowledgeData knowledgebound$getKnowledge() {
+        return this.knowledgebound$knowledge;
+    }
+
+    @Override
+    public KnowledgeOutbox knowledgebound$getOutbox() {
+        return this.knowledgebound$outbox;
+    }
+
+    @Override
+    public KnowledgeLedger knowledgebound$getLedger() {
+        return this.knowledgebound$ledger;
+    }
+
+    @Override
+    public int knowledgebound$getLastMeleeTick() {
+        return this.knowledgebound$lastMeleeTick;
+    }
+
+    @Override
+    public void knowledgebound$setLastMeleeTick(int tick) {
+        this.knowledgebound$lastMeleeTick = tick;
+    }
+
+    /**
+     * Respawn / leaving the End creates a new player entity; carry the knowledge over.
+     */
+    @Inject(method = "copyFrom", at = @At("TAIL"))
+    private void knowledgebound$copyKnowledge(ServerPlayerEntity oldPlayer, boolean alive, CallbackInfo ci) {
+        this.knowledgebound$knowledge.copyFrom(((KnowledgeHolder) oldPlayer).knowledgebound$getKnowledge());
+    }
+
     @Inject(method = "writeCustomDataToNbt", at = @At("TAIL"))
     private void knowledgebound$writeKnowledge(NbtCompound nbt, CallbackInfo ci) {
         PlayerKnowledgeManager.writeToNbt((ServerPlayerEntity) (Object) this, nbt);